@@ -1,12 +1,22 @@
 package com.tonic.api.widgets;
 
 import com.tonic.Logger;
-import com.tonic.Static;
 import com.tonic.data.TileItemEx;
 import com.tonic.data.TileObjectEx;
-import com.tonic.queries.InventoryQuery;
-import com.tonic.data.ItemContainerEx;
 import com.tonic.data.ItemEx;
+import com.tonic.services.inventory.ActionIndexCache;
+import com.tonic.services.inventory.ActionQueue;
+import com.tonic.services.inventory.ContainerCache;
+import com.tonic.services.inventory.ContainerCapacity;
+import com.tonic.services.inventory.ContainerSnapshot;
+import com.tonic.services.inventory.DropEngine;
+import com.tonic.services.inventory.DropOptions;
+import com.tonic.services.inventory.DropTask;
+import com.tonic.services.inventory.InventoryBackends;
+import com.tonic.services.inventory.InventoryDeltas;
+import com.tonic.services.inventory.InventoryMetrics;
+import com.tonic.services.inventory.InventoryWidgets;
+import com.tonic.services.inventory.SlotDelta;
 import net.runelite.api.NPC;
 import net.runelite.api.Player;
 import net.runelite.api.coords.WorldPoint;
@@ -14,7 +24,11 @@ import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.gameval.InventoryID;
 import net.runelite.api.widgets.Widget;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -22,13 +36,25 @@ import java.util.function.Predicate;
  */
 public class InventoryAPI
 {
+    private static final int CAPACITY = ContainerCapacity.INVENTORY;
+
+    /**
+     * get the current inventory snapshot. Built at most once per tick or container change
+     * and shared by every read in this api.
+     * @return ContainerSnapshot
+     */
+    public static ContainerSnapshot snapshot()
+    {
+        return ContainerCache.get(InventoryID.INV);
+    }
+
     /**
      * get all items in your inventory
      * @return List<ItemEx>
      */
     public static List<ItemEx> getItems()
     {
-        return Static.invoke(() -> InventoryQuery.fromInventoryId(InventoryID.INV).collect());
+        return new ArrayList<>(snapshot().getItems());
     }
 
     /**
@@ -38,7 +64,7 @@ public class InventoryAPI
      */
     public static ItemEx getItem(int itemId)
     {
-        return Static.invoke(() -> InventoryQuery.fromInventoryId(InventoryID.INV).withId(itemId).first());
+        return snapshot().getFirst(itemId);
     }
 
     /**
@@ -48,7 +74,7 @@ public class InventoryAPI
      */
     public static ItemEx getItem(String itemName)
     {
-        return Static.invoke(() -> InventoryQuery.fromInventoryId(InventoryID.INV).withName(itemName).first());
+        return snapshot().getFirst(itemName);
     }
 
     /**
@@ -58,7 +84,87 @@ public class InventoryAPI
      */
     public static ItemEx getItem(Predicate<ItemEx> predicate)
     {
-        return Static.invoke(() -> InventoryQuery.fromInventoryId(InventoryID.INV).keepIf(predicate).first());
+        return snapshot().getFirst(predicate);
+    }
+
+    /**
+     * get the current inventory snapshot without blocking the caller
+     * @return future snapshot
+     */
+    public static CompletableFuture<ContainerSnapshot> snapshotAsync()
+    {
+        return ContainerCache.getAsync(InventoryID.INV, ContainerCapacity.of(InventoryID.INV));
+    }
+
+    /**
+     * run several reads against one inventory snapshot, costing at most one client thread
+     * round-trip for the whole batch
+     * @param reads reads to run against the snapshot
+     * @param <T> result type
+     * @return future result
+     */
+    public static <T> CompletableFuture<T> readAsync(Function<ContainerSnapshot, T> reads)
+    {
+        return snapshotAsync().thenApply(reads);
+    }
+
+    /**
+     * get all items in your inventory without blocking the caller
+     * @return future List<ItemEx>
+     */
+    public static CompletableFuture<List<ItemEx>> getItemsAsync()
+    {
+        return readAsync(inventory -> new ArrayList<>(inventory.getItems()));
+    }
+
+    /**
+     * get an item in your inventory by id without blocking the caller
+     * @param itemId item id
+     * @return future ItemEx
+     */
+    public static CompletableFuture<ItemEx> getItemAsync(int itemId)
+    {
+        return readAsync(inventory -> inventory.getFirst(itemId));
+    }
+
+    /**
+     * get an item in your inventory by name without blocking the caller
+     * @param itemName item name
+     * @return future ItemEx
+     */
+    public static CompletableFuture<ItemEx> getItemAsync(String itemName)
+    {
+        return readAsync(inventory -> inventory.getFirst(itemName));
+    }
+
+    /**
+     * get an item in your inventory by predicate without blocking the caller
+     * @param predicate predicate
+     * @return future ItemEx
+     */
+    public static CompletableFuture<ItemEx> getItemAsync(Predicate<ItemEx> predicate)
+    {
+        return readAsync(inventory -> inventory.getFirst(predicate));
+    }
+
+    /**
+     * receive every slot change of your inventory, computed once per inventory change.
+     * Callbacks run on a delivery thread, never on the client thread.
+     * @param callback callback
+     * @return Cursor, close it to unsubscribe
+     */
+    public static InventoryDeltas.Cursor subscribeDeltas(Consumer<SlotDelta> callback)
+    {
+        return InventoryDeltas.subscribe(callback);
+    }
+
+    /**
+     * open a cursor over the inventory slot changes, to be polled at your own pace
+     * @return Cursor, close it when done
+     */
+    public static InventoryDeltas.Cursor deltaCursor()
+    {
+        return InventoryDeltas.cursor();
     }
 
     /**
@@ -70,25 +176,34 @@ public class InventoryAPI
     {
         if(item == null)
             return;
+        if (ActionQueue.isEnabled()) {
+            ActionQueue.submit(ActionQueue.Kind.WIELD, item.getSlot(), item.getId(), 0, 0, () -> sendWield(item));
+            return;
+        }
+        sendWield(item);
+    }
 
+    private static void sendWield(ItemEx item)
+    {
+        long start = InventoryMetrics.start();
         // Use bankside widget when bank is open (prevents bank from closing)
-        if (BankAPI.isOpen()) {
-            // Get the bankside inventory widget
-            Widget banksideInv = WidgetAPI.get(InterfaceID.Bankside.ITEMS);
-            if (banksideInv != null && banksideInv.getChildren() != null && item.getSlot() < banksideInv.getChildren().length) {
-                Widget itemWidget = banksideInv.getChild(item.getSlot());
-                if (itemWidget != null) {
-                    // Dynamically find and use the Wield/Wear/Equip action
-                    WidgetAPI.interact(itemWidget, "Wield", "Wear", "Equip");
-                    return;
-                }
+        if (InventoryWidgets.isBankOpen()) {
+            // Cached bankside item widget for the slot
+            Widget itemWidget = InventoryWidgets.slot(item.getSlot());
+            if (itemWidget != null) {
+                // Dynamically find and use the Wield/Wear/Equip action
+                InventoryBackends.get().widgetAction(itemWidget, "Wield", "Wear", "Equip");
+                InventoryMetrics.record(InventoryMetrics.Op.WIELD, InventoryMetrics.Path.BANK_OPEN, start);
+                return;
             }
             // Fallback to old method if widget lookup fails
             Logger.warn("Failed to get bankside widget for item, falling back to action index 3");
-            WidgetAPI.interact(3, InterfaceID.Bankside.ITEMS, item.getSlot(), item.getId());
+            InventoryBackends.get().itemAction(3, InterfaceID.Bankside.ITEMS, item.getSlot(), item.getId());
+            InventoryMetrics.record(InventoryMetrics.Op.WIELD, InventoryMetrics.Path.FALLBACK, start);
         } else {
             // Bank closed: Use regular inventory widget with action index 3 (works fine when bank is closed)
-            WidgetAPI.interact(3, InterfaceID.Inventory.ITEMS, item.getSlot(), item.getId());
+            InventoryBackends.get().itemAction(3, InterfaceID.Inventory.ITEMS, item.getSlot(), item.getId());
+            InventoryMetrics.record(InventoryMetrics.Op.WIELD, InventoryMetrics.Path.BANK_CLOSED, start);
         }
     }
 
@@ -130,11 +245,13 @@ public class InventoryAPI
     public static void interact(ItemEx item, String action)
     {
         // Bank-safe wield: Use dedicated method
-        if (action.equalsIgnoreCase("wield") || action.equalsIgnoreCase("wear") || action.equalsIgnoreCase("equip")) {
+        if (ActionIndexCache.isEquip(action)) {
             wield(item);
             return;
         }
+        long start = InventoryMetrics.start();
         itemAction(item.getSlot(), item.getId(), getAction(item, action));
+        InventoryMetrics.record(InventoryMetrics.Op.INTERACT, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -152,11 +269,13 @@ public class InventoryAPI
         }
 
         // Bank-safe wield: Use dedicated method
-        if (action.equalsIgnoreCase("wield") || action.equalsIgnoreCase("wear") || action.equalsIgnoreCase("equip")) {
+        if (ActionIndexCache.isEquip(action)) {
             wield(item);
             return;
         }
+        long start = InventoryMetrics.start();
         itemAction(item.getSlot(), item.getId(), getAction(item, action));
+        InventoryMetrics.record(InventoryMetrics.Op.INTERACT, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -212,7 +331,8 @@ public class InventoryAPI
     }
 
     /**
-     * interact with an item in your inventory by slot, id and action index
+     * interact with an item in your inventory by slot, id and action index.
+     * Bank-safe: with the bank open the action is sent by name to the bankside widget when it offers it.
      * @param slot slot
      * @param id id
      * @param action action index
@@ -220,8 +340,41 @@ public class InventoryAPI
     public static void itemAction(int slot, int id, int action) {
         if(id == 6512 || id == -1)
             return;
+        if (ActionQueue.isEnabled()) {
+            queueItemAction(slot, id, action);
+            return;
+        }
+        sendItemAction(slot, id, action);
+    }
 
-        WidgetAPI.interact(action, InterfaceID.Inventory.ITEMS, slot, id);
+    /**
+     * queue an item action on the action queue whether or not it is enabled, sent on the next tick
+     * @param slot slot
+     * @param id id
+     * @param action action index
+     * @return future completing with true once the inventory shows the slot changed
+     */
+    public static CompletableFuture<Boolean> queueItemAction(int slot, int id, int action) {
+        if(id == 6512 || id == -1)
+            return CompletableFuture.completedFuture(false);
+        return ActionQueue.submit(ActionQueue.Kind.ITEM_ACTION, slot, id, action, 0, () -> sendItemAction(slot, id, action));
+    }
+
+    private static void sendItemAction(int slot, int id, int action) {
+        long start = InventoryMetrics.start();
+        if (InventoryWidgets.isBankOpen()) {
+            // bankside action indexes differ from the inventory ones, go through the action name
+            ItemEx item = snapshot().getSlot(slot);
+            Widget itemWidget = InventoryWidgets.slot(slot);
+            String name = item != null && item.getId() == id ? InventoryWidgets.actionName(InventoryBackends.get().actions(item), action) : null;
+            if (itemWidget != null && name != null && InventoryWidgets.hasAction(itemWidget, name)) {
+                InventoryBackends.get().widgetAction(itemWidget, name);
+                InventoryMetrics.record(InventoryMetrics.Op.ITEM_ACTION, InventoryMetrics.Path.BANK_OPEN, start);
+                return;
+            }
+        }
+        InventoryBackends.get().itemAction(action, InterfaceID.Inventory.ITEMS, slot, id);
+        InventoryMetrics.record(InventoryMetrics.Op.ITEM_ACTION, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -232,31 +385,7 @@ public class InventoryAPI
      */
     private static int getAction(ItemEx item, String option)
     {
-        option = option.toLowerCase();
-        switch (option)
-        {
-            case "drop":
-                return 7;
-            case "examine":
-                return 10;
-            case "wear":
-            case "wield":
-            case "equip":
-                return 3;
-            case "rub":
-                return 6;
-        }
-        String[] actions = item.getActions();
-        int index = -1;
-        for(int i = 0; i < actions.length; i++)
-        {
-            if(actions[i] != null && actions[i].toLowerCase().contains(option))
-            {
-                index = i;
-                break;
-            }
-        }
-        return (index < 4) ? index + 2 : index + 3;
+        return ActionIndexCache.resolve(item, option);
     }
 
     /**
@@ -266,12 +395,12 @@ public class InventoryAPI
      */
     public static int dropAll(List<Integer> ids)
     {
-        int count = 0;
-        for(int id : ids)
+        int[] array = new int[ids.size()];
+        for(int i = 0; i < array.length; i++)
         {
-            count += dropAll(id);
+            array[i] = ids.get(i);
         }
-        return (int) Math.ceil((double) count / 10);
+        return dropAll(array);
     }
 
     /**
@@ -281,12 +410,7 @@ public class InventoryAPI
      */
     public static int dropAll(int... ids)
     {
-        int count = 0;
-        for(int id : ids)
-        {
-            count = dropAll(id);
-        }
-        return (int) Math.ceil((double) count / 10);
+        return dropAll(DropOptions.DEFAULT, ids).getEstimatedTicks();
     }
 
     /**
@@ -296,17 +420,22 @@ public class InventoryAPI
      */
     public static int dropAll(int id)
     {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        int count = 0;
-        for(ItemEx item : inventory.getItems())
-        {
-            if(item.getId() == id)
-            {
-                count++;
-                InventoryAPI.interact(item, 7);
-            }
-        }
-        return (int) Math.ceil((double) count / 10);
+        return dropAll(new int[]{id});
+    }
+
+    /**
+     * drop all items from your inventory by ids, paced per tick. The returned task's future
+     * completes once the inventory confirms the items are gone.
+     * @param options pattern and pacing options
+     * @param ids item ids to drop
+     * @return DropTask
+     */
+    public static DropTask dropAll(DropOptions options, int... ids)
+    {
+        long start = InventoryMetrics.start();
+        DropTask task = DropEngine.start(options, ids);
+        InventoryMetrics.record(InventoryMetrics.Op.DROP_ALL, InventoryMetrics.Path.DEFAULT, start);
+        return task;
     }
 
     /**
@@ -324,7 +453,7 @@ public class InventoryAPI
      */
     public static boolean isEmpty()
     {
-        return getEmptySlots() == 28;
+        return getEmptySlots() == CAPACITY;
     }
 
     /**
@@ -332,8 +461,7 @@ public class InventoryAPI
      * @return int
      */
     public static int getEmptySlots() {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        return 28 - inventory.getItems().size();
+        return snapshot().getEmptySlots();
     }
 
     /**
@@ -343,13 +471,7 @@ public class InventoryAPI
      */
     public static boolean contains(int... itemIds)
     {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        for(int itemId : itemIds)
-        {
-            if(inventory.getFirst(itemId) == null)
-                return false;
-        }
-        return true;
+        return snapshot().getIndex().containsAll(itemIds);
     }
 
     /**
@@ -359,13 +481,7 @@ public class InventoryAPI
      */
     public static boolean containsAny(int... itemIds)
     {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        for(int itemId : itemIds)
-        {
-            if(inventory.getFirst(itemId) != null)
-                return true;
-        }
-        return false;
+        return snapshot().getIndex().containsAny(itemIds);
     }
 
     /**
@@ -375,13 +491,7 @@ public class InventoryAPI
      */
     public static boolean contains(String... itemNames)
     {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        for(String name : itemNames)
-        {
-            if(inventory.getFirst(name) == null)
-                return false;
-        }
-        return true;
+        return snapshot().getNames().containsAll(itemNames);
     }
 
     /**
@@ -391,13 +501,7 @@ public class InventoryAPI
      */
     public static boolean containsAny(String... itemNames)
     {
-        ItemContainerEx inventory = new ItemContainerEx(InventoryID.INV);
-        for(String name : itemNames)
-        {
-            if(inventory.getFirst(name) != null)
-                return true;
-        }
-        return false;
+        return snapshot().getNames().containsAny(itemNames);
     }
 
     /**
@@ -407,7 +511,7 @@ public class InventoryAPI
      */
     public static int count(int... itemIds)
     {
-        return InventoryQuery.fromInventoryId(InventoryID.INV).withId(itemIds).count();
+        return snapshot().getIndex().count(itemIds);
     }
 
     /**
@@ -417,7 +521,7 @@ public class InventoryAPI
      */
     public static int canonicalCount(int... itemIds)
     {
-        return InventoryQuery.fromInventoryId(InventoryID.INV).withCanonicalId(itemIds).count();
+        return snapshot().getIndex().canonicalCount(itemIds);
     }
 
     /**
@@ -427,7 +531,7 @@ public class InventoryAPI
      */
     public static int count(String... itemNames)
     {
-        return InventoryQuery.fromInventoryId(InventoryID.INV).withName(itemNames).count();
+        return snapshot().count(itemNames);
     }
 
     /**
@@ -441,7 +545,19 @@ public class InventoryAPI
             return;
 
         WorldPoint wp = tileObject.getWorldLocation();
-        WidgetAPI.onTileObject(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), tileObject.getId(), wp.getX(), wp.getY(), false);
+        if (ActionQueue.isEnabled()) {
+            ActionQueue.submit(ActionQueue.Kind.USE_ON_OBJECT, item.getSlot(), item.getId(), 0, target(tileObject.getId(), wp),
+                    () -> sendUseOn(item, tileObject, wp));
+            return;
+        }
+        sendUseOn(item, tileObject, wp);
+    }
+
+    private static void sendUseOn(ItemEx item, TileObjectEx tileObject, WorldPoint wp)
+    {
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().useOnTileObject(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), tileObject.getId(), wp.getX(), wp.getY());
+        InventoryMetrics.record(InventoryMetrics.Op.USE_ON, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -455,7 +571,19 @@ public class InventoryAPI
             return;
 
         WorldPoint wp = tileItem.getWorldLocation();
-        WidgetAPI.onGroundItem(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), tileItem.getId(), wp.getX(), wp.getY(), false);
+        if (ActionQueue.isEnabled()) {
+            ActionQueue.submit(ActionQueue.Kind.USE_ON_GROUND_ITEM, item.getSlot(), item.getId(), 0, target(tileItem.getId(), wp),
+                    () -> sendUseOn(item, tileItem, wp));
+            return;
+        }
+        sendUseOn(item, tileItem, wp);
+    }
+
+    private static void sendUseOn(ItemEx item, TileItemEx tileItem, WorldPoint wp)
+    {
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().useOnGroundItem(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), tileItem.getId(), wp.getX(), wp.getY());
+        InventoryMetrics.record(InventoryMetrics.Op.USE_ON, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -467,8 +595,18 @@ public class InventoryAPI
     {
         if(item == null || player == null)
             return;
+        if (ActionQueue.isEnabled()) {
+            ActionQueue.submit(ActionQueue.Kind.USE_ON_PLAYER, item.getSlot(), item.getId(), 0, player.getId(), () -> sendUseOn(item, player));
+            return;
+        }
+        sendUseOn(item, player);
+    }
 
-        WidgetAPI.onPlayer(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), player.getId(), false);
+    private static void sendUseOn(ItemEx item, Player player)
+    {
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().useOnPlayer(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), player.getId());
+        InventoryMetrics.record(InventoryMetrics.Op.USE_ON, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -480,8 +618,18 @@ public class InventoryAPI
     {
         if(item == null || npc == null)
             return;
+        if (ActionQueue.isEnabled()) {
+            ActionQueue.submit(ActionQueue.Kind.USE_ON_NPC, item.getSlot(), item.getId(), 0, npc.getIndex(), () -> sendUseOn(item, npc));
+            return;
+        }
+        sendUseOn(item, npc);
+    }
 
-        WidgetAPI.onNpc(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), npc.getIndex(), false);
+    private static void sendUseOn(ItemEx item, NPC npc)
+    {
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().useOnNpc(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), npc.getIndex());
+        InventoryMetrics.record(InventoryMetrics.Op.USE_ON, InventoryMetrics.Path.DEFAULT, start);
     }
 
     /**
@@ -493,8 +641,27 @@ public class InventoryAPI
     {
         if(item == null || target == null)
             return;
+        if (ActionQueue.isEnabled()) {
+            long targetKey = ((long) target.getId() << 32) | (target.getSlot() & 0xFFFFFFFFL);
+            ActionQueue.submit(ActionQueue.Kind.USE_ON_ITEM, item.getSlot(), item.getId(), 0, targetKey, () -> sendUseOn(item, target));
+            return;
+        }
+        sendUseOn(item, target);
+    }
+
+    private static void sendUseOn(ItemEx item, ItemEx target)
+    {
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().useOnWidget(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), InterfaceID.Inventory.ITEMS, target.getId(), target.getSlot());
+        InventoryMetrics.record(InventoryMetrics.Op.USE_ON, InventoryMetrics.Path.DEFAULT, start);
+    }
 
-        WidgetAPI.onWidget(InterfaceID.Inventory.ITEMS, item.getId(), item.getSlot(), InterfaceID.Inventory.ITEMS, target.getId(), target.getSlot());
+    /**
+     * pack a target id and location into an action queue key
+     */
+    private static long target(int id, WorldPoint wp)
+    {
+        return ((long) id << 32) | ((long) (wp.getX() & 0x7FFF) << 17) | ((long) (wp.getY() & 0x7FFF) << 2) | (wp.getPlane() & 0x3);
     }
 
     /**
@@ -514,7 +681,7 @@ public class InventoryAPI
      */
     public static int getCount(int id, boolean canonicalize) {
         if(canonicalize)
-            return InventoryQuery.fromInventoryId(InventoryID.INV).withCanonicalId(id).count();
-        return InventoryQuery.fromInventoryId(InventoryID.INV).withId(id).count();
+            return snapshot().getIndex().canonicalCount(id);
+        return snapshot().getIndex().count(id);
     }
 }
@@ -0,0 +1,170 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Resolves (item id, action name) pairs to the final inventory widget action index.
+ * <p>
+ * Action names are mapped once to small integer codes (the raw string is cached too,
+ * so repeated calls with the same literal skip lower-casing). Resolved indexes live in a
+ * direct-mapped table of packed longs: bounded, lock-free, allocation-free on a hit,
+ * and a colliding entry simply evicts the previous one.
+ */
+public class ActionIndexCache
+{
+    private static final int MAX_CODES = 1 << 12;
+    private static final int TABLE_SIZE = 1 << 12;
+    private static final int MASK = TABLE_SIZE - 1;
+
+    private static final Map<String, Integer> RAW_CODES = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> NORMALIZED_CODES = new ConcurrentHashMap<>();
+    private static final String[] NAMES = new String[MAX_CODES];
+    private static final int[] FIXED = new int[MAX_CODES];
+    private static final boolean[] EQUIP = new boolean[MAX_CODES];
+    private static final AtomicInteger NEXT_CODE = new AtomicInteger();
+    private static final AtomicLongArray TABLE = new AtomicLongArray(TABLE_SIZE);
+
+    static
+    {
+        Arrays.fill(FIXED, -1);
+        fixed("drop", 7);
+        fixed("examine", 10);
+        fixed("wear", 3);
+        fixed("wield", 3);
+        fixed("equip", 3);
+        fixed("rub", 6);
+        EQUIP[code("wear")] = true;
+        EQUIP[code("wield")] = true;
+        EQUIP[code("equip")] = true;
+    }
+
+    /**
+     * resolve the widget action index for an item action name
+     * @param item item
+     * @param option action name, matched case-insensitively as a substring of the item's actions
+     * @return action index
+     */
+    public static int resolve(ItemEx item, String option)
+    {
+        int code = code(option);
+        if(code < 0)
+            return compute(InventoryBackends.get().actions(item), option.toLowerCase(Locale.ROOT));
+        if(FIXED[code] >= 0)
+            return FIXED[code];
+
+        int itemId = item.getId();
+        int slot = slot(itemId, code);
+        long entry = TABLE.get(slot);
+        if(entry != 0 && (int) (entry >>> 32) == itemId + 1 && (int) ((entry >>> 16) & 0xFFFF) == code)
+            return (int) (entry & 0xFFFF);
+
+        int index = compute(InventoryBackends.get().actions(item), NAMES[code]);
+        TABLE.lazySet(slot, pack(itemId, code, index));
+        return index;
+    }
+
+    /**
+     * @param option action name
+     * @return true if the action is one of the wield/wear/equip aliases
+     */
+    public static boolean isEquip(String option)
+    {
+        int code = code(option);
+        if(code >= 0)
+            return EQUIP[code];
+        return option.equalsIgnoreCase("wield") || option.equalsIgnoreCase("wear") || option.equalsIgnoreCase("equip");
+    }
+
+    /**
+     * pre-fill the table from item definitions. Must be called on the client thread.
+     * @param itemIds item ids
+     */
+    public static void warm(int... itemIds)
+    {
+        InventoryBackend backend = InventoryBackends.get();
+        for(int itemId : itemIds)
+        {
+            String[] actions = backend.actions(itemId);
+            if(actions == null)
+                continue;
+            for(String action : actions)
+            {
+                if(action == null)
+                    continue;
+                int code = code(action);
+                if(code < 0 || FIXED[code] >= 0)
+                    continue;
+                TABLE.lazySet(slot(itemId, code), pack(itemId, code, compute(actions, NAMES[code])));
+            }
+        }
+    }
+
+    /**
+     * drop every cached index
+     */
+    public static void clear()
+    {
+        for(int i = 0; i < TABLE_SIZE; i++)
+        {
+            TABLE.lazySet(i, 0);
+        }
+    }
+
+    private static int compute(String[] actions, String option)
+    {
+        int index = -1;
+        for(int i = 0; i < actions.length; i++)
+        {
+            if(actions[i] != null && actions[i].toLowerCase(Locale.ROOT).contains(option))
+            {
+                index = i;
+                break;
+            }
+        }
+        return (index < 4) ? index + 2 : index + 3;
+    }
+
+    private static int code(String raw)
+    {
+        Integer code = RAW_CODES.get(raw);
+        if(code != null)
+            return code;
+        if(RAW_CODES.size() >= MAX_CODES * 4)
+            return -1;
+
+        String normalized = raw.toLowerCase(Locale.ROOT).intern();
+        code = NORMALIZED_CODES.computeIfAbsent(normalized, k -> {
+            int next = NEXT_CODE.getAndIncrement();
+            if(next >= MAX_CODES)
+                return -1;
+            NAMES[next] = k;
+            return next;
+        });
+        if(code >= 0)
+            RAW_CODES.putIfAbsent(raw, code);
+        return code;
+    }
+
+    private static void fixed(String name, int index)
+    {
+        FIXED[code(name)] = index;
+    }
+
+    private static int slot(int itemId, int code)
+    {
+        int h = (itemId * 31 + code) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & MASK;
+    }
+
+    private static long pack(int itemId, int code, int index)
+    {
+        return ((long) (itemId + 1) << 32) | ((long) (code & 0xFFFF) << 16) | (index & 0xFFFF);
+    }
+}
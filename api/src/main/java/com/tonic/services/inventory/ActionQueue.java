@@ -0,0 +1,374 @@
+package com.tonic.services.inventory;
+
+import com.tonic.api.widgets.InventoryAPI;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Per-tick coalescing queue for inventory interactions. Off by default, see {@link #setEnabled}.
+ * <p>
+ * Queued actions are sent on the next GameTick, at most {@link #getBudget()} per tick, in one
+ * client thread hop. An action identical to one still queued or awaiting acknowledgement is not
+ * sent again, the caller gets the pending action's future instead. Only one action per slot is in
+ * flight at a time, a conflicting one waits for the next tick. An action whose item has left its
+ * slot by send time is dropped. A sent action is acknowledged (true) once the inventory shows its
+ * slot changed (for use on an item: its slot or the target's), or fails (false) after
+ * {@link #getAckTicks()} ticks without a change. Using an item on an object, ground item, player
+ * or npc often leaves its own slot untouched (cooking, tools), so those are acknowledged by any
+ * inventory change and do not hold their slot.
+ */
+public class ActionQueue
+{
+    public static final int DEFAULT_BUDGET = 10;
+    public static final int DEFAULT_ACK_TICKS = 3;
+
+    public enum Kind
+    {
+        ITEM_ACTION,
+        WIELD,
+        USE_ON_OBJECT,
+        USE_ON_GROUND_ITEM,
+        USE_ON_PLAYER,
+        USE_ON_NPC,
+        USE_ON_ITEM
+    }
+
+    private static final Object LOCK = new Object();
+    // insertion ordered, guarded by LOCK
+    private static final Map<Key, Action> QUEUED = new LinkedHashMap<>();
+    private static final Map<Key, Action> IN_FLIGHT = new LinkedHashMap<>();
+    private static volatile boolean enabled = false;
+    private static volatile int budget = DEFAULT_BUDGET;
+    private static volatile int ackTicks = DEFAULT_ACK_TICKS;
+    private static int tick = 0;
+
+    /**
+     * route the InventoryAPI interactions through the queue instead of sending them immediately
+     * @param enabled enabled
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        if(enabled)
+            InventoryEvents.install();
+        ActionQueue.enabled = enabled;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param budget maximum actions sent per tick
+     */
+    public static void setBudget(int budget)
+    {
+        ActionQueue.budget = Math.max(1, budget);
+    }
+
+    public static int getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * @param ackTicks ticks a sent action may wait for its slot to change
+     */
+    public static void setAckTicks(int ackTicks)
+    {
+        ActionQueue.ackTicks = Math.max(1, ackTicks);
+    }
+
+    public static int getAckTicks()
+    {
+        return ackTicks;
+    }
+
+    /**
+     * queue an action
+     * @param kind kind of action
+     * @param slot inventory slot of the item acted with
+     * @param itemId id of the item acted with
+     * @param action action index, 0 where not applicable
+     * @param target target identity (object id and location, npc index, target slot...), 0 where not applicable
+     * @param dispatch sends the action, run on the client thread
+     * @return future completing with true when acknowledged, false when dropped or unacknowledged
+     */
+    public static CompletableFuture<Boolean> submit(Kind kind, int slot, int itemId, int action, long target, Runnable dispatch)
+    {
+        InventoryEvents.install();
+        Key key = new Key(kind, slot, itemId, action, target);
+        synchronized (LOCK)
+        {
+            Action pending = QUEUED.get(key);
+            if(pending == null)
+                pending = IN_FLIGHT.get(key);
+            if(pending != null)
+                return pending.ack;
+            Action queued = new Action(key, dispatch);
+            QUEUED.put(key, queued);
+            return queued.ack;
+        }
+    }
+
+    /**
+     * @return number of actions waiting to be sent
+     */
+    public static int queued()
+    {
+        synchronized (LOCK)
+        {
+            return QUEUED.size();
+        }
+    }
+
+    /**
+     * fail and drop every queued and in-flight action
+     */
+    public static void clear()
+    {
+        List<Action> dropped;
+        synchronized (LOCK)
+        {
+            dropped = new ArrayList<>(QUEUED.values());
+            dropped.addAll(IN_FLIGHT.values());
+            QUEUED.clear();
+            IN_FLIGHT.clear();
+        }
+        for(Action action : dropped)
+        {
+            action.ack.complete(false);
+        }
+    }
+
+    /**
+     * called once per game tick on the client thread
+     */
+    static void onTick()
+    {
+        List<Action> expired = new ArrayList<>();
+        List<Action> stale = new ArrayList<>();
+        List<Action> batch = new ArrayList<>();
+        synchronized (LOCK)
+        {
+            tick++;
+            Iterator<Action> flying = IN_FLIGHT.values().iterator();
+            while(flying.hasNext())
+            {
+                Action action = flying.next();
+                if(tick - action.sentTick > ackTicks)
+                {
+                    flying.remove();
+                    expired.add(action);
+                }
+            }
+            if(QUEUED.isEmpty() && expired.isEmpty())
+                return;
+
+            ItemIndex index = QUEUED.isEmpty() ? null : InventoryAPI.snapshot().getIndex();
+            Set<Integer> busy = new HashSet<>();
+            for(Action action : IN_FLIGHT.values())
+            {
+                if(holdsSlot(action.key.kind))
+                    busy.add(action.key.slot);
+                if(action.key.kind == Kind.USE_ON_ITEM)
+                    busy.add(targetSlot(action.key));
+            }
+            Iterator<Action> queued = QUEUED.values().iterator();
+            while(queued.hasNext() && batch.size() < budget)
+            {
+                Action action = queued.next();
+                boolean targetGone = action.key.kind == Kind.USE_ON_ITEM
+                        && index.idAt(targetSlot(action.key)) != targetId(action.key);
+                if(index.idAt(action.key.slot) != action.key.itemId || targetGone)
+                {
+                    // the item moved or is gone, the click would be wasted
+                    queued.remove();
+                    stale.add(action);
+                    continue;
+                }
+                if(holdsSlot(action.key.kind) && busy.contains(action.key.slot))
+                    continue;
+                if(action.key.kind == Kind.USE_ON_ITEM && busy.contains(targetSlot(action.key)))
+                    continue;
+                if(holdsSlot(action.key.kind))
+                    busy.add(action.key.slot);
+                if(action.key.kind == Kind.USE_ON_ITEM)
+                {
+                    int target = targetSlot(action.key);
+                    busy.add(target);
+                    action.expectedTargetQuantity = index.quantityAt(target);
+                }
+                queued.remove();
+                action.sentTick = tick;
+                action.expectedId = index.idAt(action.key.slot);
+                action.expectedQuantity = index.quantityAt(action.key.slot);
+                IN_FLIGHT.put(action.key, action);
+                batch.add(action);
+            }
+        }
+
+        for(Action action : expired)
+        {
+            action.ack.complete(false);
+        }
+        for(Action action : stale)
+        {
+            action.ack.complete(false);
+        }
+        if(batch.isEmpty())
+            return;
+        InventoryBackends.get().invoke(() -> {
+            for(Action action : batch)
+            {
+                try
+                {
+                    action.dispatch.run();
+                }
+                catch (RuntimeException e)
+                {
+                    fail(action, e);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * acknowledge sent actions the change confirms, called on inventory change on the client thread
+     */
+    static void onInventoryChanged()
+    {
+        List<Action> acknowledged = new ArrayList<>();
+        synchronized (LOCK)
+        {
+            if(IN_FLIGHT.isEmpty())
+                return;
+            ItemIndex index = InventoryAPI.snapshot().getIndex();
+            Iterator<Action> flying = IN_FLIGHT.values().iterator();
+            while(flying.hasNext())
+            {
+                Action action = flying.next();
+                if(changed(action, index))
+                {
+                    flying.remove();
+                    acknowledged.add(action);
+                }
+            }
+        }
+        for(Action action : acknowledged)
+        {
+            action.ack.complete(true);
+        }
+    }
+
+    /**
+     * @return true if an inventory change acknowledges the action
+     */
+    private static boolean changed(Action action, ItemIndex index)
+    {
+        Key key = action.key;
+        // the change may be in any slot, and this is only called once something changed
+        if(!holdsSlot(key.kind))
+            return true;
+        int slot = key.slot;
+        if(index.idAt(slot) != action.expectedId || index.quantityAt(slot) != action.expectedQuantity)
+            return true;
+        if(key.kind != Kind.USE_ON_ITEM)
+            return false;
+        // knife on logs, chisel on gem: the tool stays, the target changes
+        int target = targetSlot(key);
+        return index.idAt(target) != targetId(key) || index.quantityAt(target) != action.expectedTargetQuantity;
+    }
+
+    /**
+     * @return true if the kind's effect shows up in its own slot, so the slot is held while in flight
+     */
+    private static boolean holdsSlot(Kind kind)
+    {
+        return kind == Kind.ITEM_ACTION || kind == Kind.WIELD || kind == Kind.USE_ON_ITEM;
+    }
+
+    /**
+     * target of a USE_ON_ITEM key, packed as (target id &lt;&lt; 32) | target slot
+     */
+    private static int targetSlot(Key key)
+    {
+        return (int) key.target;
+    }
+
+    private static int targetId(Key key)
+    {
+        return (int) (key.target >>> 32);
+    }
+
+    private static void fail(Action action, RuntimeException e)
+    {
+        synchronized (LOCK)
+        {
+            IN_FLIGHT.remove(action.key);
+        }
+        action.ack.completeExceptionally(e);
+    }
+
+    private static final class Key
+    {
+        private final Kind kind;
+        private final int slot;
+        private final int itemId;
+        private final int action;
+        private final long target;
+
+        private Key(Kind kind, int slot, int itemId, int action, long target)
+        {
+            this.kind = kind;
+            this.slot = slot;
+            this.itemId = itemId;
+            this.action = action;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(this == o)
+                return true;
+            if(!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return kind == other.kind && slot == other.slot && itemId == other.itemId
+                    && action == other.action && target == other.target;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(kind, slot, itemId, action, target);
+        }
+    }
+
+    private static final class Action
+    {
+        private final Key key;
+        private final Runnable dispatch;
+        private final CompletableFuture<Boolean> ack = new CompletableFuture<>();
+        private int sentTick;
+        private int expectedId;
+        private int expectedQuantity;
+        private int expectedTargetQuantity;
+
+        private Action(Key key, Runnable dispatch)
+        {
+            this.key = key;
+            this.dispatch = dispatch;
+        }
+    }
+}
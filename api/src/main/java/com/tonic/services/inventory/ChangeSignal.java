@@ -0,0 +1,95 @@
+package com.tonic.services.inventory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generation counter that waiting threads can park on until it moves.
+ * Uses a {@link ReentrantLock} rather than a monitor so virtual threads unmount while waiting.
+ */
+public final class ChangeSignal
+{
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile long generation = 0;
+
+    /**
+     * @return current generation
+     */
+    public long generation()
+    {
+        return generation;
+    }
+
+    /**
+     * advance the generation and wake every waiter
+     */
+    void signal()
+    {
+        lock.lock();
+        try
+        {
+            generation++;
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * park until the generation moves past the one given or the timeout elapses
+     * @param seen generation the caller last observed
+     * @param timeoutNanos maximum time to wait
+     * @return remaining nanos, <= 0 if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long await(long seen, long timeoutNanos) throws InterruptedException
+    {
+        long remaining = timeoutNanos;
+        lock.lock();
+        try
+        {
+            while(generation == seen && remaining > 0)
+            {
+                remaining = changed.awaitNanos(remaining);
+            }
+            return remaining;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * park until the generation has moved by the given number of steps
+     * @param steps number of signals to wait for
+     * @param timeout maximum time to wait
+     * @param unit time unit
+     * @return true if the signals arrived before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitSteps(int steps, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long target = generation + steps;
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try
+        {
+            while(generation < target)
+            {
+                if(remaining <= 0)
+                    return false;
+                remaining = changed.awaitNanos(remaining);
+            }
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
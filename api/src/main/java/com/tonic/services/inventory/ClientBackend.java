@@ -0,0 +1,139 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Static;
+import com.tonic.api.widgets.BankAPI;
+import com.tonic.api.widgets.WidgetAPI;
+import com.tonic.data.ItemContainerEx;
+import com.tonic.data.ItemEx;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.widgets.Widget;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The live client.
+ */
+final class ClientBackend implements InventoryBackend
+{
+    // the event bus delivers twice to a subscriber registered twice
+    private final Set<Object> registered = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public <T> T invoke(Supplier<T> task)
+    {
+        return Static.invoke(() -> task.get());
+    }
+
+    @Override
+    public int tickCount()
+    {
+        return Static.getClient().getTickCount();
+    }
+
+    @Override
+    public List<ItemEx> items(int containerId)
+    {
+        return new ItemContainerEx(containerId).getItems();
+    }
+
+    @Override
+    public int containerSize(int containerId)
+    {
+        ItemContainer container = Static.getClient().getItemContainer(containerId);
+        return container != null ? container.size() : 0;
+    }
+
+    @Override
+    public boolean isBankOpen()
+    {
+        return BankAPI.isOpen();
+    }
+
+    @Override
+    public Widget widget(int widgetId)
+    {
+        return WidgetAPI.get(widgetId);
+    }
+
+    @Override
+    public String itemName(int itemId)
+    {
+        return Static.getClient().getItemDefinition(itemId).getName();
+    }
+
+    @Override
+    public int canonicalId(int itemId)
+    {
+        ItemComposition composition = Static.getClient().getItemDefinition(itemId);
+        if(composition.getNote() != -1)
+            return composition.getLinkedNoteId();
+        if(composition.getPlaceholderTemplateId() != -1)
+            return composition.getPlaceholderId();
+        return itemId;
+    }
+
+    @Override
+    public String[] actions(ItemEx item)
+    {
+        return item.getActions();
+    }
+
+    @Override
+    public String[] actions(int itemId)
+    {
+        return Static.getClient().getItemDefinition(itemId).getInventoryActions();
+    }
+
+    @Override
+    public void itemAction(int action, int widgetId, int slot, int itemId)
+    {
+        WidgetAPI.interact(action, widgetId, slot, itemId);
+    }
+
+    @Override
+    public void widgetAction(Widget widget, String... actions)
+    {
+        WidgetAPI.interact(widget, actions);
+    }
+
+    @Override
+    public void useOnTileObject(int widgetId, int itemId, int slot, int objectId, int x, int y)
+    {
+        WidgetAPI.onTileObject(widgetId, itemId, slot, objectId, x, y, false);
+    }
+
+    @Override
+    public void useOnGroundItem(int widgetId, int itemId, int slot, int groundItemId, int x, int y)
+    {
+        WidgetAPI.onGroundItem(widgetId, itemId, slot, groundItemId, x, y, false);
+    }
+
+    @Override
+    public void useOnPlayer(int widgetId, int itemId, int slot, int playerIndex)
+    {
+        WidgetAPI.onPlayer(widgetId, itemId, slot, playerIndex, false);
+    }
+
+    @Override
+    public void useOnNpc(int widgetId, int itemId, int slot, int npcIndex)
+    {
+        WidgetAPI.onNpc(widgetId, itemId, slot, npcIndex, false);
+    }
+
+    @Override
+    public void useOnWidget(int widgetId, int itemId, int slot, int targetWidgetId, int targetItemId, int targetSlot)
+    {
+        WidgetAPI.onWidget(widgetId, itemId, slot, targetWidgetId, targetItemId, targetSlot);
+    }
+
+    @Override
+    public void register(Object subscriber)
+    {
+        if(registered.add(subscriber))
+            Static.getRuneLite().getEventBus().register(subscriber);
+    }
+}
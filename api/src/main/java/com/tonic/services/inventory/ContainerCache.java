@@ -0,0 +1,218 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Versioned snapshot cache for item containers.
+ * <p>
+ * A snapshot is rebuilt at most once per game tick, plus once for every
+ * ItemContainerChanged event seen for its container, so a change in the middle
+ * of a tick is never served stale. All other reads share the same snapshot.
+ */
+public class ContainerCache
+{
+    private static final Map<Integer, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "container-snapshot-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * get the current snapshot of a container, sized from {@link ContainerCapacity}
+     * @param containerId container id
+     * @return ContainerSnapshot
+     */
+    public static ContainerSnapshot get(int containerId)
+    {
+        return get(containerId, ContainerCapacity.of(containerId));
+    }
+
+    /**
+     * get the current snapshots of several containers. Every stale one is rebuilt in a single
+     * client thread round-trip.
+     * @param containerIds container ids
+     * @return snapshots, in the order of the ids
+     */
+    public static ContainerSnapshot[] getAll(int... containerIds)
+    {
+        InventoryEvents.install();
+        ContainerSnapshot[] snapshots = new ContainerSnapshot[containerIds.length];
+        Entry[] entries = new Entry[containerIds.length];
+        boolean stale = false;
+        for(int i = 0; i < containerIds.length; i++)
+        {
+            entries[i] = ENTRIES.computeIfAbsent(containerIds[i], k -> new Entry());
+            ContainerSnapshot snapshot = entries[i].snapshot;
+            if(isFresh(entries[i], snapshot))
+                snapshots[i] = snapshot;
+            else
+                stale = true;
+        }
+        if(!stale)
+            return snapshots;
+
+        long start = InventoryMetrics.start();
+        InventoryBackends.get().invoke(() -> {
+            for(int i = 0; i < containerIds.length; i++)
+            {
+                if(snapshots[i] == null)
+                    snapshots[i] = rebuild(entries[i], containerIds[i], ContainerCapacity.of(containerIds[i]));
+            }
+            return null;
+        });
+        InventoryMetrics.record(InventoryMetrics.Op.INVOKE, InventoryMetrics.Path.DEFAULT, start);
+        return snapshots;
+    }
+
+    /**
+     * get the current snapshots of several containers without blocking the caller
+     * @param containerIds container ids
+     * @return future snapshots, in the order of the ids
+     */
+    public static CompletableFuture<ContainerSnapshot[]> getAllAsync(int... containerIds)
+    {
+        return CompletableFuture.supplyAsync(() -> getAll(containerIds), REFRESHER);
+    }
+
+    /**
+     * get the current snapshot of a container, rebuilding it on the client thread if stale
+     * @param containerId container id
+     * @param capacity number of slots in the container, or {@link ContainerCapacity#DYNAMIC}
+     * @return ContainerSnapshot
+     */
+    public static ContainerSnapshot get(int containerId, int capacity)
+    {
+        InventoryEvents.install();
+        Entry entry = ENTRIES.computeIfAbsent(containerId, k -> new Entry());
+        ContainerSnapshot snapshot = entry.snapshot;
+        if(isFresh(entry, snapshot))
+            return snapshot;
+        long start = InventoryMetrics.start();
+        snapshot = InventoryBackends.get().invoke(() -> rebuild(entry, containerId, capacity));
+        InventoryMetrics.record(InventoryMetrics.Op.INVOKE, InventoryMetrics.Path.DEFAULT, start);
+        return snapshot;
+    }
+
+    /**
+     * get the current snapshot of a container without blocking the caller.
+     * Completes immediately when the cached snapshot is fresh, otherwise every caller
+     * asking during the same refresh shares a single client thread round-trip.
+     * @param containerId container id
+     * @param capacity number of slots in the container
+     * @return future snapshot
+     */
+    public static CompletableFuture<ContainerSnapshot> getAsync(int containerId, int capacity)
+    {
+        InventoryEvents.install();
+        Entry entry = ENTRIES.computeIfAbsent(containerId, k -> new Entry());
+        ContainerSnapshot snapshot = entry.snapshot;
+        if(isFresh(entry, snapshot))
+            return CompletableFuture.completedFuture(snapshot);
+
+        synchronized (entry)
+        {
+            CompletableFuture<ContainerSnapshot> pending = entry.pending;
+            if(pending != null)
+                return pending;
+            CompletableFuture<ContainerSnapshot> future = CompletableFuture.supplyAsync(
+                    () -> {
+                        long start = InventoryMetrics.start();
+                        ContainerSnapshot rebuilt = InventoryBackends.get().invoke(() -> rebuild(entry, containerId, capacity));
+                        InventoryMetrics.record(InventoryMetrics.Op.INVOKE, InventoryMetrics.Path.DEFAULT, start);
+                        return rebuilt;
+                    }, REFRESHER);
+            entry.pending = future;
+            future.whenComplete((result, ex) -> {
+                synchronized (entry)
+                {
+                    entry.pending = null;
+                }
+            });
+            return future;
+        }
+    }
+
+    /**
+     * mark a container as changed, the next read will rebuild its snapshot
+     * @param containerId container id
+     */
+    public static void invalidate(int containerId)
+    {
+        Entry entry = ENTRIES.get(containerId);
+        if(entry != null)
+        {
+            entry.version++;
+        }
+    }
+
+    /**
+     * drop every snapshot, e.g. after switching backends
+     */
+    public static void clear()
+    {
+        ENTRIES.clear();
+    }
+
+    /**
+     * @param containerId container id
+     * @return the change version of a container, bumped on every invalidation
+     */
+    public static long version(int containerId)
+    {
+        Entry entry = ENTRIES.get(containerId);
+        return entry == null ? 0 : entry.version;
+    }
+
+    private static ContainerSnapshot rebuild(Entry entry, int containerId, int capacity)
+    {
+        // another thread may have rebuilt it while we waited for the client thread
+        ContainerSnapshot snapshot = entry.snapshot;
+        if(isFresh(entry, snapshot))
+            return snapshot;
+
+        long version = entry.version;
+        List<ItemEx> items = InventoryBackends.get().items(containerId);
+        if(capacity == ContainerCapacity.DYNAMIC)
+            capacity = dynamicCapacity(containerId, items);
+        snapshot = new ContainerSnapshot(containerId, capacity, version, currentTick(), items);
+        entry.snapshot = snapshot;
+        return snapshot;
+    }
+
+    private static int dynamicCapacity(int containerId, List<ItemEx> items)
+    {
+        int capacity = InventoryBackends.get().containerSize(containerId);
+        for(ItemEx item : items)
+        {
+            capacity = Math.max(capacity, item.getSlot() + 1);
+        }
+        return capacity;
+    }
+
+    private static boolean isFresh(Entry entry, ContainerSnapshot snapshot)
+    {
+        return snapshot != null && snapshot.getVersion() == entry.version && snapshot.getTick() == currentTick();
+    }
+
+    private static int currentTick()
+    {
+        return InventoryBackends.get().tickCount();
+    }
+
+    private static final class Entry
+    {
+        // only written from the client thread
+        private volatile long version = 0;
+        private volatile ContainerSnapshot snapshot;
+        // guarded by the entry monitor
+        private CompletableFuture<ContainerSnapshot> pending;
+    }
+}
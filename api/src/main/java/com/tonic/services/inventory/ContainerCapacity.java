@@ -0,0 +1,54 @@
+package com.tonic.services.inventory;
+
+import net.runelite.api.gameval.InventoryID;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Slot capacity per item container. Containers with a fixed layout have a fixed capacity,
+ * the rest (bank, shops, storage) are sized from the client's container when a snapshot is built.
+ */
+public final class ContainerCapacity
+{
+    /**
+     * capacity is read from the client container at snapshot time
+     */
+    public static final int DYNAMIC = -1;
+    public static final int INVENTORY = 28;
+    public static final int EQUIPMENT = 14;
+
+    private static final Map<Integer, Integer> FIXED = new ConcurrentHashMap<>();
+
+    static
+    {
+        FIXED.put(InventoryID.INV, INVENTORY);
+        FIXED.put(InventoryID.WORN, EQUIPMENT);
+        FIXED.put(InventoryID.BANK, DYNAMIC);
+    }
+
+    private ContainerCapacity()
+    {
+    }
+
+    /**
+     * @param containerId container id
+     * @return fixed capacity, or {@link #DYNAMIC}
+     */
+    public static int of(int containerId)
+    {
+        return FIXED.getOrDefault(containerId, DYNAMIC);
+    }
+
+    /**
+     * declare the fixed capacity of a container not known here
+     * @param containerId container id
+     * @param capacity number of slots
+     */
+    public static void register(int containerId, int capacity)
+    {
+        if(capacity <= 0 && capacity != DYNAMIC)
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " for container " + containerId);
+        FIXED.put(containerId, capacity);
+    }
+}
@@ -0,0 +1,189 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Id, name and count queries over one or more item containers at once, e.g. the total of an
+ * item across inventory, bank and equipment. The snapshots of every container are taken
+ * together (one client thread round-trip for all stale ones) and each query walks their
+ * indexes once.
+ * <pre>
+ * int coins = ContainerQuery.of(InventoryID.INV, InventoryID.BANK).count(ItemID.COINS);
+ * </pre>
+ */
+public final class ContainerQuery
+{
+    private final ContainerSnapshot[] snapshots;
+
+    private ContainerQuery(ContainerSnapshot[] snapshots)
+    {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * @param containerIds container ids
+     * @return query over the current snapshots of the containers
+     */
+    public static ContainerQuery of(int... containerIds)
+    {
+        return new ContainerQuery(ContainerCache.getAll(containerIds));
+    }
+
+    /**
+     * @param containerIds container ids
+     * @return future query over the current snapshots of the containers, without blocking the caller
+     */
+    public static CompletableFuture<ContainerQuery> ofAsync(int... containerIds)
+    {
+        return ContainerCache.getAllAsync(containerIds).thenApply(ContainerQuery::new);
+    }
+
+    /**
+     * @param containerId container id
+     * @return the snapshot of a container in this query, or null if it is not part of it
+     */
+    public ContainerSnapshot get(int containerId)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            if(snapshot.getContainerId() == containerId)
+                return snapshot;
+        }
+        return null;
+    }
+
+    /**
+     * count the total quantity of items matching any of the ids across all containers
+     * @param ids item ids
+     * @return int
+     */
+    public int count(int... ids)
+    {
+        int total = 0;
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            total += snapshot.getIndex().count(ids);
+        }
+        return total;
+    }
+
+    /**
+     * count the total quantity of items matching any of the ids across all containers,
+     * noted and un-noted forms counted together
+     * @param ids item ids
+     * @return int
+     */
+    public int canonicalCount(int... ids)
+    {
+        int total = 0;
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            total += snapshot.getIndex().canonicalCount(ids);
+        }
+        return total;
+    }
+
+    /**
+     * count the total quantity of items matching any of the names (case-insensitive) across all containers
+     * @param names item names
+     * @return int
+     */
+    public int count(String... names)
+    {
+        int total = 0;
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            total += snapshot.count(names);
+        }
+        return total;
+    }
+
+    /**
+     * @param ids item ids
+     * @return true if every id is held by at least one of the containers
+     */
+    public boolean contains(int... ids)
+    {
+        for(int id : ids)
+        {
+            if(containerOf(id) == -1)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param ids item ids
+     * @return true if any of the ids is held by any of the containers
+     */
+    public boolean containsAny(int... ids)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            if(snapshot.getIndex().containsAny(ids))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param names item names
+     * @return true if any of the names is held by any of the containers
+     */
+    public boolean containsAny(String... names)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            if(snapshot.getNames().containsAny(names))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param id item id
+     * @return id of the first container, in query order, holding the item, or -1
+     */
+    public int containerOf(int id)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            if(snapshot.getIndex().contains(id))
+                return snapshot.getContainerId();
+        }
+        return -1;
+    }
+
+    /**
+     * @param ids item ids
+     * @return the first item matching any of the ids, searching the containers in query order, or null
+     */
+    public ItemEx getFirst(int... ids)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            ItemEx item = snapshot.getFirst(ids);
+            if(item != null)
+                return item;
+        }
+        return null;
+    }
+
+    /**
+     * @param predicate predicate
+     * @return the first item matching the predicate, searching the containers in query order, or null
+     */
+    public ItemEx getFirst(Predicate<ItemEx> predicate)
+    {
+        for(ContainerSnapshot snapshot : snapshots)
+        {
+            ItemEx item = snapshot.getFirst(predicate);
+            if(item != null)
+                return item;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable view of an item container taken at a single point in time.
+ * Snapshots are handed out by {@link ContainerCache} and carry the change version
+ * they were built from, so two reads can tell whether they saw the same state.
+ */
+@Getter
+public class ContainerSnapshot
+{
+    private final int containerId;
+    private final int capacity;
+    private final long version;
+    private final int tick;
+    private final List<ItemEx> items;
+    private final ItemIndex index;
+    // built on the first name query, most snapshots are only read by id
+    @Getter(AccessLevel.NONE)
+    private volatile NameIndex names;
+    @Getter(AccessLevel.NONE)
+    private final ItemEx[] slots;
+
+    ContainerSnapshot(int containerId, int capacity, long version, int tick, List<ItemEx> items)
+    {
+        this.containerId = containerId;
+        this.capacity = capacity;
+        this.version = version;
+        this.tick = tick;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.slots = new ItemEx[capacity];
+        for(ItemEx item : items)
+        {
+            int slot = item.getSlot();
+            if(slot >= 0 && slot < capacity)
+                slots[slot] = item;
+        }
+        this.index = new ItemIndex(capacity, items);
+    }
+
+    /**
+     * @return name index of the snapshot
+     */
+    public NameIndex getNames()
+    {
+        NameIndex names = this.names;
+        if(names != null)
+            return names;
+        // item names come from definitions, which are read on the client thread. Built outside
+        // the lock, the client thread may be waiting on it; a racing build is discarded
+        names = InventoryBackends.get().invoke(() -> new NameIndex(index));
+        synchronized (this)
+        {
+            if(this.names == null)
+                this.names = names;
+            return this.names;
+        }
+    }
+
+    /**
+     * get the item in a slot
+     * @param slot slot
+     * @return ItemEx or null if the slot is empty
+     */
+    public ItemEx getSlot(int slot)
+    {
+        if(slot < 0 || slot >= capacity)
+            return null;
+        return slots[slot];
+    }
+
+    /**
+     * get the first item matching any of the ids
+     * @param ids item ids
+     * @return ItemEx or null
+     */
+    public ItemEx getFirst(int... ids)
+    {
+        for(ItemEx item : items)
+        {
+            for(int id : ids)
+            {
+                if(item.getId() == id)
+                    return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * get the first item matching any of the names (case-insensitive)
+     * @param names item names
+     * @return ItemEx or null
+     */
+    public ItemEx getFirst(String... names)
+    {
+        return getSlot(getNames().firstSlot(names));
+    }
+
+    /**
+     * get the first item matching a predicate
+     * @param predicate predicate
+     * @return ItemEx or null
+     */
+    public ItemEx getFirst(Predicate<ItemEx> predicate)
+    {
+        for(ItemEx item : items)
+        {
+            if(predicate.test(item))
+                return item;
+        }
+        return null;
+    }
+
+    /**
+     * count the total quantity of items matching any of the ids
+     * @param ids item ids
+     * @return int
+     */
+    public int count(int... ids)
+    {
+        return index.count(ids);
+    }
+
+    /**
+     * count the total quantity of items matching any of the names (case-insensitive)
+     * @param names item names
+     * @return int
+     */
+    public int count(String... names)
+    {
+        return getNames().count(names);
+    }
+
+    /**
+     * @return number of occupied slots
+     */
+    public int size()
+    {
+        return items.size();
+    }
+
+    /**
+     * @return number of empty slots
+     */
+    public int getEmptySlots()
+    {
+        return capacity - items.size();
+    }
+
+    public boolean isFull()
+    {
+        return getEmptySlots() <= 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return items.isEmpty();
+    }
+}
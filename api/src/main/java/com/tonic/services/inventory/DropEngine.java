@@ -0,0 +1,102 @@
+package com.tonic.services.inventory;
+
+import com.tonic.api.widgets.InventoryAPI;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched drop pipeline. Gathers every matching slot in one pass over the inventory
+ * index, orders them by a {@link DropPattern} and paces the drop actions per game tick.
+ */
+public class DropEngine
+{
+    private static final long TICK_MILLIS = 600;
+    private static final List<DropTask> ACTIVE = new CopyOnWriteArrayList<>();
+
+    /**
+     * start dropping every inventory slot holding one of the ids
+     * @param options pacing options
+     * @param ids item ids to drop
+     * @return DropTask handle
+     */
+    public static DropTask start(DropOptions options, int... ids)
+    {
+        ItemIndex index = InventoryAPI.snapshot().getIndex();
+        int[] slots = new int[index.capacity()];
+        int length = 0;
+        for(int slot = 0; slot < index.capacity(); slot++)
+        {
+            int id = index.idAt(slot);
+            if(id == -1)
+                continue;
+            for(int wanted : ids)
+            {
+                if(id == wanted)
+                {
+                    slots[length++] = slot;
+                    break;
+                }
+            }
+        }
+
+        options.getPattern().order(slots, length);
+        int[] ordered = new int[length];
+        int[] orderedIds = new int[length];
+        for(int i = 0; i < length; i++)
+        {
+            ordered[i] = slots[i];
+            orderedIds[i] = index.idAt(slots[i]);
+        }
+
+        DropTask task = new DropTask(options, ordered, orderedIds);
+        if(length == 0)
+        {
+            task.getFuture().complete(0);
+            return task;
+        }
+        InventoryEvents.install();
+        ACTIVE.add(task);
+        task.getFuture().whenComplete((count, ex) -> ACTIVE.remove(task));
+        if(InventoryBackends.isLive())
+        {
+            // completes with what was confirmed so far, no-op if the task already finished
+            long timeoutMillis = options.getTimeoutTicks() * TICK_MILLIS;
+            CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(task::cancel);
+        }
+        task.sendBatch();
+        return task;
+    }
+
+    /**
+     * cancel every running drop job, e.g. on logout
+     */
+    public static void cancelAll()
+    {
+        for(DropTask task : ACTIVE)
+        {
+            task.cancel();
+        }
+    }
+
+    static void onTick()
+    {
+        for(DropTask task : ACTIVE)
+        {
+            task.onTick();
+        }
+    }
+
+    static void onInventoryChanged()
+    {
+        if(ACTIVE.isEmpty())
+            return;
+        ItemIndex index = InventoryAPI.snapshot().getIndex();
+        for(DropTask task : ACTIVE)
+        {
+            task.confirm(index);
+        }
+    }
+}
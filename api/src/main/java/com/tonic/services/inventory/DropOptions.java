@@ -0,0 +1,40 @@
+package com.tonic.services.inventory;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Pacing options for {@link DropEngine}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class DropOptions
+{
+    public static final DropOptions DEFAULT = DropOptions.builder().build();
+
+    /**
+     * order slots are dropped in
+     */
+    @Builder.Default
+    private final DropPattern pattern = DropPattern.ROW;
+
+    /**
+     * maximum drop actions sent per game tick
+     */
+    @Builder.Default
+    private final int perTick = 10;
+
+    /**
+     * ticks to wait for the inventory to confirm the drops after the last batch was sent
+     */
+    @Builder.Default
+    private final int confirmTicks = 5;
+
+    /**
+     * game ticks the whole task may take. Against the live client it is also enforced on the wall
+     * clock (600 ms per tick), as ticks stop while logged out or disconnected; a simulator only
+     * counts its own ticks, so runs stay reproducible.
+     */
+    @Builder.Default
+    private final int timeoutTicks = 50;
+}
@@ -0,0 +1,108 @@
+package com.tonic.services.inventory;
+
+import java.util.Arrays;
+
+/**
+ * Order in which inventory slots are dropped. Slots are laid out 4 columns wide.
+ */
+public enum DropPattern
+{
+    /**
+     * left to right, top to bottom (slot order)
+     */
+    ROW,
+    /**
+     * top to bottom, one column at a time
+     */
+    COLUMN,
+    /**
+     * row order, reversing direction on every other row
+     */
+    ZIG_ZAG,
+    /**
+     * greedy nearest neighbour walk starting from the first slot
+     */
+    NEAREST_FIRST;
+
+    private static final int COLUMNS = 4;
+
+    /**
+     * reorder slots in place according to this pattern
+     * @param slots slot numbers
+     * @param length number of valid entries in slots
+     */
+    void order(int[] slots, int length)
+    {
+        switch (this)
+        {
+            case ROW:
+                Arrays.sort(slots, 0, length);
+                break;
+            case COLUMN:
+                sortByKey(slots, length, false);
+                break;
+            case ZIG_ZAG:
+                sortByKey(slots, length, true);
+                break;
+            case NEAREST_FIRST:
+                nearestFirst(slots, length);
+                break;
+        }
+    }
+
+    private static void sortByKey(int[] slots, int length, boolean zigZag)
+    {
+        // insertion sort, at most one container worth of slots
+        for(int i = 1; i < length; i++)
+        {
+            int slot = slots[i];
+            int key = key(slot, zigZag);
+            int j = i - 1;
+            while(j >= 0 && key(slots[j], zigZag) > key)
+            {
+                slots[j + 1] = slots[j];
+                j--;
+            }
+            slots[j + 1] = slot;
+        }
+    }
+
+    private static int key(int slot, boolean zigZag)
+    {
+        int row = slot / COLUMNS;
+        int column = slot % COLUMNS;
+        if(!zigZag)
+            return column * 1024 + row;
+        return row * COLUMNS + ((row & 1) == 0 ? column : COLUMNS - 1 - column);
+    }
+
+    private static void nearestFirst(int[] slots, int length)
+    {
+        Arrays.sort(slots, 0, length);
+        for(int i = 1; i < length; i++)
+        {
+            int previous = slots[i - 1];
+            int best = i;
+            int bestDistance = Integer.MAX_VALUE;
+            for(int j = i; j < length; j++)
+            {
+                int distance = distance(previous, slots[j]);
+                if(distance < bestDistance)
+                {
+                    bestDistance = distance;
+                    best = j;
+                }
+            }
+            int tmp = slots[i];
+            slots[i] = slots[best];
+            slots[best] = tmp;
+        }
+    }
+
+    private static int distance(int a, int b)
+    {
+        int dx = (a % COLUMNS) - (b % COLUMNS);
+        int dy = (a / COLUMNS) - (b / COLUMNS);
+        return dx * dx + dy * dy;
+    }
+}
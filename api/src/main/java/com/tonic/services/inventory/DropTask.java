@@ -0,0 +1,142 @@
+package com.tonic.services.inventory;
+
+import com.tonic.api.widgets.InventoryAPI;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A running drop job. Sends its drop actions in per-tick batches and completes its
+ * future with the number of slots confirmed empty once the inventory shows them gone,
+ * once the confirmation window or {@link DropOptions#getTimeoutTicks()} runs out, or on
+ * logout.
+ */
+public class DropTask
+{
+    private static final int DROP_ACTION = 7;
+
+    private final DropOptions options;
+    private final int[] slots;
+    private final int[] ids;
+    private final boolean[] confirmed;
+    @Getter
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+    private int sent = 0;
+    private int confirmedCount = 0;
+    private int idleTicks = 0;
+    private int ticks = 0;
+
+    DropTask(DropOptions options, int[] slots, int[] ids)
+    {
+        this.options = options;
+        this.slots = slots;
+        this.ids = ids;
+        this.confirmed = new boolean[slots.length];
+    }
+
+    /**
+     * @return number of slots this task drops
+     */
+    public int size()
+    {
+        return slots.length;
+    }
+
+    /**
+     * @return estimated number of ticks needed to send every drop
+     */
+    public int getEstimatedTicks()
+    {
+        return (int) Math.ceil((double) slots.length / Math.max(1, options.getPerTick()));
+    }
+
+    /**
+     * @return number of slots not yet confirmed empty
+     */
+    public synchronized int remaining()
+    {
+        return slots.length - confirmedCount;
+    }
+
+    /**
+     * @return true once the task has finished
+     */
+    public boolean isDone()
+    {
+        return future.isDone();
+    }
+
+    /**
+     * stop sending further batches, completes with what has been confirmed so far
+     */
+    public synchronized void cancel()
+    {
+        future.complete(confirmedCount);
+    }
+
+    /**
+     * send the next batch of drop actions. The lock is released before dispatching so a
+     * caller waiting on the client thread can never deadlock against the tick handler.
+     */
+    void sendBatch()
+    {
+        int start;
+        int end;
+        synchronized (this)
+        {
+            if(future.isDone())
+                return;
+            start = sent;
+            end = Math.min(slots.length, sent + Math.max(1, options.getPerTick()));
+            sent = end;
+        }
+        for(int i = start; i < end; i++)
+        {
+            InventoryAPI.itemAction(slots[i], ids[i], DROP_ACTION);
+        }
+    }
+
+    /**
+     * called once per game tick
+     */
+    void onTick()
+    {
+        synchronized (this)
+        {
+            if(future.isDone())
+                return;
+            if(++ticks >= options.getTimeoutTicks())
+            {
+                future.complete(confirmedCount);
+                return;
+            }
+            if(sent >= slots.length)
+            {
+                if(++idleTicks > options.getConfirmTicks())
+                    future.complete(confirmedCount);
+                return;
+            }
+        }
+        sendBatch();
+    }
+
+    /**
+     * check which dropped slots the inventory now shows as gone
+     * @param index current inventory index
+     */
+    synchronized void confirm(ItemIndex index)
+    {
+        if(future.isDone())
+            return;
+        for(int i = 0; i < sent; i++)
+        {
+            if(!confirmed[i] && index.idAt(slots[i]) != ids[i])
+            {
+                confirmed[i] = true;
+                confirmedCount++;
+            }
+        }
+        if(confirmedCount == slots.length)
+            future.complete(confirmedCount);
+    }
+}
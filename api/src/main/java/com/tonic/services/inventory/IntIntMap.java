@@ -0,0 +1,110 @@
+package com.tonic.services.inventory;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int to int map with linear probing. Lookups never allocate.
+ * Missing keys read as 0, so the map doubles as a counter table.
+ */
+final class IntIntMap
+{
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIntMap(int expected)
+    {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    int get(int key)
+    {
+        int i = indexOf(key);
+        return i < 0 ? 0 : values[i];
+    }
+
+    boolean containsKey(int key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    void put(int key, int value)
+    {
+        int i = slot(key);
+        if(keys[i] == FREE)
+        {
+            keys[i] = key;
+            if(++size * 2 > keys.length)
+            {
+                values[i] = value;
+                grow();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    void add(int key, int delta)
+    {
+        put(key, get(key) + delta);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void clear()
+    {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private int indexOf(int key)
+    {
+        int i = slot(key);
+        return keys[i] == FREE ? -1 : i;
+    }
+
+    private int slot(int key)
+    {
+        int i = mix(key) & mask;
+        while(keys[i] != FREE && keys[i] != key)
+        {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] != FREE)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,107 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+import net.runelite.api.widgets.Widget;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Everything the inventory services and InventoryAPI need from the client. The live client is
+ * used by default; {@link InventoryBackends#install} swaps in another one, e.g. an
+ * {@link InventorySimulator} to run scripts offline.
+ */
+public interface InventoryBackend
+{
+    /**
+     * run a task on the client thread and wait for its result
+     * @param task task
+     * @param <T> result type
+     * @return result
+     */
+    <T> T invoke(Supplier<T> task);
+
+    /**
+     * @return current game tick
+     */
+    int tickCount();
+
+    /**
+     * @param containerId container id
+     * @return items of the container, empty if it does not exist
+     */
+    List<ItemEx> items(int containerId);
+
+    /**
+     * @param containerId container id
+     * @return number of slots of the container, 0 if it does not exist
+     */
+    int containerSize(int containerId);
+
+    /**
+     * @return true if the bank interface is open
+     */
+    boolean isBankOpen();
+
+    /**
+     * @param widgetId packed widget id
+     * @return widget, or null if not loaded
+     */
+    Widget widget(int widgetId);
+
+    /**
+     * @param itemId item id
+     * @return item name, may be null
+     */
+    String itemName(int itemId);
+
+    /**
+     * @param itemId item id
+     * @return canonical (un-noted, non-placeholder) id
+     */
+    int canonicalId(int itemId);
+
+    /**
+     * @param item item
+     * @return inventory actions of the item
+     */
+    String[] actions(ItemEx item);
+
+    /**
+     * @param itemId item id
+     * @return inventory actions of the item definition, may be null
+     */
+    String[] actions(int itemId);
+
+    /**
+     * send an item action by widget action index
+     * @param action action index
+     * @param widgetId item container widget id
+     * @param slot slot
+     * @param itemId item id
+     */
+    void itemAction(int action, int widgetId, int slot, int itemId);
+
+    /**
+     * send the first of the actions a widget offers
+     * @param widget widget
+     * @param actions action names
+     */
+    void widgetAction(Widget widget, String... actions);
+
+    void useOnTileObject(int widgetId, int itemId, int slot, int objectId, int x, int y);
+
+    void useOnGroundItem(int widgetId, int itemId, int slot, int groundItemId, int x, int y);
+
+    void useOnPlayer(int widgetId, int itemId, int slot, int playerIndex);
+
+    void useOnNpc(int widgetId, int itemId, int slot, int npcIndex);
+
+    void useOnWidget(int widgetId, int itemId, int slot, int targetWidgetId, int targetItemId, int targetSlot);
+
+    /**
+     * register an event subscriber, no-op for backends that deliver events themselves
+     * @param subscriber subscriber
+     */
+    void register(Object subscriber);
+}
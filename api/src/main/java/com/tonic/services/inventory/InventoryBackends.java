@@ -0,0 +1,62 @@
+package com.tonic.services.inventory;
+
+/**
+ * Holder of the {@link InventoryBackend} the inventory services run against.
+ * <p>
+ * The services keep static state (snapshots, widgets, queues), so there is one backend per JVM.
+ * Switching drops every cached value read from the previous one.
+ */
+public final class InventoryBackends
+{
+    private static final InventoryBackend CLIENT = new ClientBackend();
+    private static volatile InventoryBackend current = CLIENT;
+
+    private InventoryBackends()
+    {
+    }
+
+    /**
+     * @return the backend in use
+     */
+    public static InventoryBackend get()
+    {
+        return current;
+    }
+
+    /**
+     * @return true if the live client is in use
+     */
+    public static boolean isLive()
+    {
+        return current == CLIENT;
+    }
+
+    /**
+     * run the inventory services against another backend
+     * @param backend backend
+     */
+    public static synchronized void install(InventoryBackend backend)
+    {
+        if(backend == null)
+            throw new IllegalArgumentException("backend");
+        if(backend == current)
+            return;
+        current = backend;
+        ActionQueue.clear();
+        DropEngine.cancelAll();
+        ContainerCache.clear();
+        ItemDefinitionCache.clear();
+        ActionIndexCache.clear();
+        InventoryWidgets.invalidate();
+        InventoryDeltas.reset();
+        InventoryEvents.reinstall();
+    }
+
+    /**
+     * go back to the live client
+     */
+    public static void reset()
+    {
+        install(CLIENT);
+    }
+}
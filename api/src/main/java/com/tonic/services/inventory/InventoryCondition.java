@@ -0,0 +1,113 @@
+package com.tonic.services.inventory;
+
+import lombok.Getter;
+
+import java.util.function.Predicate;
+
+/**
+ * A predicate over the inventory together with what it depends on, so
+ * {@link InventoryWatcher} only re-evaluates it when a relevant part of the inventory changed.
+ */
+@Getter
+public final class InventoryCondition
+{
+    private final Predicate<ContainerSnapshot> predicate;
+    /**
+     * item ids the predicate reads, null if it may read anything
+     */
+    private final int[] ids;
+    /**
+     * whether the predicate reads the number of occupied slots
+     */
+    private final boolean occupancy;
+
+    private InventoryCondition(Predicate<ContainerSnapshot> predicate, int[] ids, boolean occupancy)
+    {
+        this.predicate = predicate;
+        this.ids = ids;
+        this.occupancy = occupancy;
+    }
+
+    /**
+     * condition that is re-evaluated on every inventory change
+     * @param predicate predicate
+     * @return InventoryCondition
+     */
+    public static InventoryCondition of(Predicate<ContainerSnapshot> predicate)
+    {
+        return new InventoryCondition(predicate, null, false);
+    }
+
+    /**
+     * condition that only reads the given item ids
+     * @param predicate predicate
+     * @param ids item ids the predicate depends on
+     * @return InventoryCondition
+     */
+    public static InventoryCondition ofIds(Predicate<ContainerSnapshot> predicate, int... ids)
+    {
+        return new InventoryCondition(predicate, ids.clone(), false);
+    }
+
+    public static InventoryCondition full()
+    {
+        return new InventoryCondition(ContainerSnapshot::isFull, new int[0], true);
+    }
+
+    public static InventoryCondition notFull()
+    {
+        return new InventoryCondition(s -> !s.isFull(), new int[0], true);
+    }
+
+    public static InventoryCondition empty()
+    {
+        return new InventoryCondition(ContainerSnapshot::isEmpty, new int[0], true);
+    }
+
+    public static InventoryCondition contains(int... ids)
+    {
+        int[] copy = ids.clone();
+        return new InventoryCondition(s -> s.getIndex().containsAll(copy), copy, false);
+    }
+
+    public static InventoryCondition containsAny(int... ids)
+    {
+        int[] copy = ids.clone();
+        return new InventoryCondition(s -> s.getIndex().containsAny(copy), copy, false);
+    }
+
+    public static InventoryCondition missing(int... ids)
+    {
+        int[] copy = ids.clone();
+        return new InventoryCondition(s -> !s.getIndex().containsAny(copy), copy, false);
+    }
+
+    public static InventoryCondition countAtLeast(int id, int amount)
+    {
+        return new InventoryCondition(s -> s.getIndex().count(id) >= amount, new int[]{id}, false);
+    }
+
+    public static InventoryCondition countBelow(int id, int amount)
+    {
+        return new InventoryCondition(s -> s.getIndex().count(id) < amount, new int[]{id}, false);
+    }
+
+    /**
+     * @param changedIds set of item ids whose slots changed
+     * @param occupancyChanged whether the number of occupied slots changed
+     * @return true if this condition needs re-evaluating
+     */
+    boolean affectedBy(IntIntMap changedIds, boolean occupancyChanged)
+    {
+        if(ids == null)
+            return true;
+        if(occupancy && occupancyChanged)
+            return true;
+        for(int id : ids)
+        {
+            if(changedIds.containsKey(id))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,280 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Logger;
+import com.tonic.api.widgets.InventoryAPI;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Stream of slot-level inventory deltas.
+ * <p>
+ * Deltas are computed once per ItemContainerChanged on the client thread, by comparing the
+ * new inventory index with the previous one, and written into a bounded ring of primitive
+ * arrays. The client thread never waits on a consumer: every cursor reads at its own pace,
+ * and a cursor that falls about {@link #CAPACITY} deltas behind skips the overwritten
+ * ones and counts them as dropped. Subscribers are drained on an executor, one drain at a
+ * time per subscriber, so callbacks for a subscriber never overlap.
+ */
+public class InventoryDeltas
+{
+    public static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+    // the writer fills up to one inventory's worth of entries past the published sequence,
+    // so only the entries behind that are safe to read
+    private static final int READABLE = CAPACITY - ContainerCapacity.INVENTORY;
+
+    // ring, written by the client thread only
+    private static final int[] SLOTS = new int[CAPACITY];
+    private static final int[] OLD_IDS = new int[CAPACITY];
+    private static final int[] OLD_QUANTITIES = new int[CAPACITY];
+    private static final int[] NEW_IDS = new int[CAPACITY];
+    private static final int[] NEW_QUANTITIES = new int[CAPACITY];
+    private static final int[] TICKS = new int[CAPACITY];
+    /**
+     * sequence of the next delta to be written, published after the entries
+     */
+    private static volatile long published = 0;
+
+    private static final List<Cursor> CURSORS = new CopyOnWriteArrayList<>();
+    private static final ExecutorService DELIVERY = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "inventory-deltas");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // client thread only, seeded by the first cursor
+    private static volatile ItemIndex last;
+
+    /**
+     * open a cursor starting at the next delta
+     * @return Cursor, close it when done
+     */
+    public static Cursor cursor()
+    {
+        InventoryEvents.install();
+        Cursor cursor = new Cursor(published);
+        CURSORS.add(cursor);
+        // baseline, so the very next change already produces deltas. Seeded on the client
+        // thread so it cannot replace a newer index stored by a change in between
+        InventoryBackends.get().invoke(() -> {
+            if(last == null)
+                last = InventoryAPI.snapshot().getIndex();
+            return null;
+        });
+        return cursor;
+    }
+
+    /**
+     * deliver every future delta to a callback on the shared delivery thread
+     * @param callback callback
+     * @return Cursor, close it to unsubscribe
+     */
+    public static Cursor subscribe(Consumer<SlotDelta> callback)
+    {
+        return subscribe(callback, DELIVERY);
+    }
+
+    /**
+     * deliver every future delta to a callback on an executor
+     * @param callback callback
+     * @param executor executor the callback runs on
+     * @return Cursor, close it to unsubscribe
+     */
+    public static Cursor subscribe(Consumer<SlotDelta> callback, Executor executor)
+    {
+        Cursor cursor = cursor();
+        cursor.callback = callback;
+        cursor.executor = executor;
+        return cursor;
+    }
+
+    /**
+     * @return total number of deltas published so far
+     */
+    public static long published()
+    {
+        return published;
+    }
+
+    /**
+     * forget the previous inventory state, the next change only re-seeds it
+     */
+    static void reset()
+    {
+        last = null;
+    }
+
+    /**
+     * compute and publish the deltas for an inventory change, on the client thread
+     */
+    static void onInventoryChanged()
+    {
+        if(CURSORS.isEmpty())
+        {
+            last = null;
+            return;
+        }
+
+        ContainerSnapshot snapshot = InventoryAPI.snapshot();
+        ItemIndex index = snapshot.getIndex();
+        ItemIndex before = last;
+        last = index;
+        if(before == null)
+            return;
+
+        long sequence = published;
+        int tick = snapshot.getTick();
+        for(int slot = 0; slot < index.capacity(); slot++)
+        {
+            int oldId = before.idAt(slot);
+            int newId = index.idAt(slot);
+            int oldQuantity = oldId == -1 ? 0 : before.quantityAt(slot);
+            int newQuantity = newId == -1 ? 0 : index.quantityAt(slot);
+            if(oldId == newId && oldQuantity == newQuantity)
+                continue;
+            int i = (int) (sequence & MASK);
+            SLOTS[i] = slot;
+            OLD_IDS[i] = oldId;
+            OLD_QUANTITIES[i] = oldQuantity;
+            NEW_IDS[i] = newId;
+            NEW_QUANTITIES[i] = newQuantity;
+            TICKS[i] = tick;
+            sequence++;
+        }
+        if(sequence == published)
+            return;
+        published = sequence;
+
+        for(Cursor cursor : CURSORS)
+        {
+            cursor.schedule();
+        }
+    }
+
+    /**
+     * a reader's position in the stream
+     */
+    public static final class Cursor implements AutoCloseable
+    {
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long next;
+        private volatile long dropped;
+        private volatile Consumer<SlotDelta> callback;
+        private volatile Executor executor;
+
+        private Cursor(long next)
+        {
+            this.next = next;
+        }
+
+        /**
+         * read the next delta without blocking
+         * @return SlotDelta, or null if the cursor has caught up
+         */
+        public synchronized SlotDelta poll()
+        {
+            while(true)
+            {
+                long head = published;
+                long sequence = next;
+                if(sequence >= head)
+                    return null;
+                if(head - sequence > READABLE)
+                {
+                    dropped += head - READABLE - sequence;
+                    next = head - READABLE;
+                    continue;
+                }
+                int i = (int) (sequence & MASK);
+                SlotDelta delta = new SlotDelta(SLOTS[i], OLD_IDS[i], OLD_QUANTITIES[i], NEW_IDS[i], NEW_QUANTITIES[i], TICKS[i]);
+                // the entry may have been overwritten while it was read; the fence keeps the
+                // plain array reads above from being moved after the re-check
+                VarHandle.acquireFence();
+                if(published - sequence > READABLE)
+                    continue;
+                next = sequence + 1;
+                return delta;
+            }
+        }
+
+        /**
+         * read every available delta without blocking
+         * @param consumer receives the deltas in order
+         * @return number of deltas read
+         */
+        public int drain(Consumer<SlotDelta> consumer)
+        {
+            int count = 0;
+            SlotDelta delta;
+            while((delta = poll()) != null)
+            {
+                consumer.accept(delta);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * @return number of deltas this cursor missed because it fell behind by more than the ring
+         */
+        public long getDropped()
+        {
+            return dropped;
+        }
+
+        /**
+         * @return number of deltas published but not read yet
+         */
+        public long lag()
+        {
+            return Math.max(0, published - next);
+        }
+
+        /**
+         * stop reading, no further callbacks are scheduled
+         */
+        @Override
+        public void close()
+        {
+            CURSORS.remove(this);
+        }
+
+        private void schedule()
+        {
+            Executor target = executor;
+            if(target == null || !draining.compareAndSet(false, true))
+                return;
+            target.execute(this::deliver);
+        }
+
+        private void deliver()
+        {
+            try
+            {
+                drain(delta -> {
+                    try
+                    {
+                        callback.accept(delta);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        Logger.warn("Inventory delta subscriber failed: " + e.getMessage());
+                    }
+                });
+            }
+            finally
+            {
+                draining.set(false);
+            }
+            // deltas published between the last poll and releasing the flag
+            if(lag() > 0 && CURSORS.contains(this))
+                schedule();
+        }
+    }
+}
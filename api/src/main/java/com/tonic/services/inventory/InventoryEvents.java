@@ -0,0 +1,107 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Logger;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.WidgetClosed;
+import net.runelite.api.events.WidgetLoaded;
+import net.runelite.api.gameval.InventoryID;
+import net.runelite.client.eventbus.Subscribe;
+
+/**
+ * Event bridge feeding the inventory services. Registered lazily on first use.
+ */
+public class InventoryEvents
+{
+    private static final InventoryEvents INSTANCE = new InventoryEvents();
+    private static volatile boolean installed = false;
+
+    /**
+     * register the event bridge with the backend (no-op once installed)
+     */
+    public static void install()
+    {
+        if(installed)
+            return;
+        synchronized (InventoryEvents.class)
+        {
+            if(installed)
+                return;
+            installed = true;
+            try
+            {
+                InventoryBackends.get().register(INSTANCE);
+            }
+            catch (Exception e)
+            {
+                Logger.warn("Failed to register inventory events, snapshots will refresh per tick only: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * register again with the next install, after switching backends
+     */
+    static synchronized void reinstall()
+    {
+        installed = false;
+    }
+
+    @Subscribe
+    public void onItemContainerChanged(ItemContainerChanged event)
+    {
+        containerChanged(event.getContainerId());
+    }
+
+    @Subscribe
+    public void onGameTick(GameTick event)
+    {
+        gameTick();
+    }
+
+    @Subscribe
+    public void onWidgetLoaded(WidgetLoaded event)
+    {
+        InventoryWidgets.onWidgetLoaded(event.getGroupId());
+    }
+
+    @Subscribe
+    public void onWidgetClosed(WidgetClosed event)
+    {
+        InventoryWidgets.onWidgetClosed(event.getGroupId());
+    }
+
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event)
+    {
+        // interfaces are rebuilt on login, hop and loading screens
+        InventoryWidgets.invalidate();
+        GameState state = event.getGameState();
+        if(state != GameState.LOGGED_IN && state != GameState.LOADING)
+            DropEngine.cancelAll();
+    }
+
+    static void containerChanged(int containerId)
+    {
+        ContainerCache.invalidate(containerId);
+        if(containerId == InventoryID.INV)
+        {
+            InventoryWidgets.onInventoryChanged();
+            DropEngine.onInventoryChanged();
+            ScriptExecutor.onInventoryChanged();
+            InventoryWatcher.onInventoryChanged();
+            ActionQueue.onInventoryChanged();
+            InventoryDeltas.onInventoryChanged();
+        }
+    }
+
+    static void gameTick()
+    {
+        DropEngine.onTick();
+        // after the drop engine, so its batch goes out this tick
+        ActionQueue.onTick();
+        ScriptExecutor.onTick();
+    }
+}
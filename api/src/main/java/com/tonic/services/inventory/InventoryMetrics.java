@@ -0,0 +1,195 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Logger;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead counters and latency histograms for inventory interactions.
+ * <p>
+ * Recording indexes preallocated arrays by enum ordinal, so the hot path never allocates.
+ * Latencies land in power-of-two nanosecond buckets. Exposed over JMX.
+ */
+public class InventoryMetrics implements InventoryMetricsMXBean
+{
+    public enum Op
+    {
+        ITEM_ACTION,
+        INTERACT,
+        WIELD,
+        USE_ON,
+        DROP_ALL,
+        /**
+         * client thread round-trip for a snapshot refresh
+         */
+        INVOKE
+    }
+
+    public enum Path
+    {
+        DEFAULT,
+        BANK_OPEN,
+        BANK_CLOSED,
+        /**
+         * bankside widget lookup failed, action index fallback used
+         */
+        FALLBACK
+    }
+
+    private static final Op[] OPS = Op.values();
+    private static final Path[] PATHS = Path.values();
+    private static final int BUCKETS = 48;
+
+    private static final LongAdder[] COUNTERS = new LongAdder[OPS.length * PATHS.length];
+    private static final AtomicLongArray HISTOGRAMS = new AtomicLongArray(OPS.length * BUCKETS);
+    private static final InventoryMetrics INSTANCE = new InventoryMetrics();
+    private static volatile long resetAt = System.nanoTime();
+
+    static
+    {
+        for(int i = 0; i < COUNTERS.length; i++)
+        {
+            COUNTERS[i] = new LongAdder();
+        }
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("com.tonic:type=InventoryMetrics"));
+        }
+        catch (Exception e)
+        {
+            Logger.warn("Failed to register inventory metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return a start timestamp to pass to {@link #record}
+     */
+    public static long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * record one call
+     * @param op operation
+     * @param path path taken
+     * @param start timestamp from {@link #start()}
+     */
+    public static void record(Op op, Path path, long start)
+    {
+        COUNTERS[op.ordinal() * PATHS.length + path.ordinal()].increment();
+        long nanos = Math.max(1, System.nanoTime() - start);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+        HISTOGRAMS.incrementAndGet(op.ordinal() * BUCKETS + bucket);
+    }
+
+    /**
+     * @return the metrics instance registered with JMX
+     */
+    public static InventoryMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param op operation
+     * @param path path
+     * @return number of calls recorded
+     */
+    public static long count(Op op, Path path)
+    {
+        return COUNTERS[op.ordinal() * PATHS.length + path.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getCounters()
+    {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for(Op op : OPS)
+        {
+            for(Path path : PATHS)
+            {
+                long value = count(op, path);
+                if(value > 0)
+                    counters.put(op.name().toLowerCase() + "." + path.name().toLowerCase(), value);
+            }
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Micros()
+    {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Micros()
+    {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public Map<String, Double> getRatePerSecond()
+    {
+        double seconds = Math.max(1e-9, (System.nanoTime() - resetAt) / 1e9);
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for(Op op : OPS)
+        {
+            long total = 0;
+            for(Path path : PATHS)
+            {
+                total += count(op, path);
+            }
+            rates.put(op.name().toLowerCase(), total / seconds);
+        }
+        return rates;
+    }
+
+    @Override
+    public void reset()
+    {
+        for(LongAdder counter : COUNTERS)
+        {
+            counter.reset();
+        }
+        for(int i = 0; i < HISTOGRAMS.length(); i++)
+        {
+            HISTOGRAMS.set(i, 0);
+        }
+        resetAt = System.nanoTime();
+    }
+
+    private static Map<String, Double> percentiles(double quantile)
+    {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for(Op op : OPS)
+        {
+            long total = 0;
+            for(int b = 0; b < BUCKETS; b++)
+            {
+                total += HISTOGRAMS.get(op.ordinal() * BUCKETS + b);
+            }
+            if(total == 0)
+                continue;
+            long target = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for(int b = 0; b < BUCKETS; b++)
+            {
+                seen += HISTOGRAMS.get(op.ordinal() * BUCKETS + b);
+                if(seen >= target)
+                {
+                    // upper bound of the bucket
+                    result.put(op.name().toLowerCase(), (double) (1L << (b + 1)) / 1000.0);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
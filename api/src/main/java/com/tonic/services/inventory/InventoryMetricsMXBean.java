@@ -0,0 +1,31 @@
+package com.tonic.services.inventory;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link InventoryMetrics}, registered as {@code com.tonic:type=InventoryMetrics}.
+ */
+public interface InventoryMetricsMXBean
+{
+    /**
+     * @return call counts keyed by "operation.path"
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return median latency per operation in microseconds
+     */
+    Map<String, Double> getLatencyP50Micros();
+
+    /**
+     * @return 99th percentile latency per operation in microseconds
+     */
+    Map<String, Double> getLatencyP99Micros();
+
+    /**
+     * @return calls per second per operation since the last reset
+     */
+    Map<String, Double> getRatePerSecond();
+
+    void reset();
+}
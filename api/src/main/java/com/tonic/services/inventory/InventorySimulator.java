@@ -0,0 +1,865 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Logger;
+import com.tonic.data.ItemEx;
+import lombok.Getter;
+import net.runelite.api.Item;
+import net.runelite.api.gameval.InterfaceID;
+import net.runelite.api.gameval.InventoryID;
+import net.runelite.api.widgets.Widget;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Deterministic offline stand-in for the client, to load-test inventory scripts without a game.
+ * <p>
+ * Once installed it is the {@link InventoryBackend}: InventoryAPI reads the simulated containers
+ * and its actions are queued here instead of being sent. Time only moves with {@link #tick()}.
+ * A tick applies the actions that are due (at most {@link #setActionsPerTick} of them, each after
+ * a seeded random delay, see {@link #setActionDelay}), fires ItemContainerChanged for every
+ * changed container, then GameTick, then runs every script once, in order, on the calling thread.
+ * With the same seed, definitions and scripts two runs are identical, so a timing bug seen once
+ * can be replayed. Scripts on other threads (ScriptExecutor) work as well, the simulated client
+ * thread is a lock, but their interleaving is then up to the scheduler.
+ * <pre>
+ * try(InventorySimulator sim = new InventorySimulator(42))
+ * {
+ *     sim.define(ItemID.LOGS, "Logs", "Use", null, null, null, "Drop");
+ *     sim.fill(ItemID.LOGS, 1);
+ *     sim.addScript(() -> {
+ *         if(InventoryAPI.isFull())
+ *             InventoryAPI.dropAll(ItemID.LOGS);
+ *     });
+ *     InventorySimulator.Report report = sim.run(10_000);
+ * }
+ * </pre>
+ * Widgets are not simulated, so bank-open actions take the action index fallback. Items only
+ * know what was given to {@link #define}, ItemEx methods reading the client directly (e.g.
+ * getName in a predicate) do not work offline. The inventory services are static, so one
+ * simulator is installed per JVM at a time.
+ */
+public class InventorySimulator implements InventoryBackend, AutoCloseable
+{
+    /**
+     * what an action does to the simulated containers
+     */
+    @FunctionalInterface
+    public interface Effect
+    {
+        /**
+         * @param sim simulator
+         * @param slot inventory slot of the item acted with
+         * @param targetSlot inventory slot of the target item, -1 unless used on an item
+         */
+        void apply(InventorySimulator sim, int slot, int targetSlot);
+    }
+
+    private static final Effect NOTHING = (sim, slot, targetSlot) -> {};
+    private static final Effect REMOVE = (sim, slot, targetSlot) -> sim.clear(slot);
+    private static final Effect CONSUME = (sim, slot, targetSlot) -> sim.remove(slot, 1);
+    private static final Effect EQUIP = (sim, slot, targetSlot) -> sim.equip(slot);
+    private static final Map<String, Effect> DEFAULT_EFFECTS = new HashMap<>();
+
+    static
+    {
+        DEFAULT_EFFECTS.put("drop", REMOVE);
+        DEFAULT_EFFECTS.put("destroy", REMOVE);
+        DEFAULT_EFFECTS.put("wield", EQUIP);
+        DEFAULT_EFFECTS.put("wear", EQUIP);
+        DEFAULT_EFFECTS.put("equip", EQUIP);
+        DEFAULT_EFFECTS.put("eat", CONSUME);
+        DEFAULT_EFFECTS.put("drink", CONSUME);
+        DEFAULT_EFFECTS.put("bury", CONSUME);
+        DEFAULT_EFFECTS.put("scatter", CONSUME);
+    }
+
+    // the simulated client thread
+    private final ReentrantLock clientThread = new ReentrantLock();
+    private final Random random;
+    // read off the client thread by the definition caches, so not behind the lock
+    private final Map<Integer, Definition> definitions = new ConcurrentHashMap<>();
+    // everything below is guarded by clientThread
+    private final Map<Integer, Container> containers = new LinkedHashMap<>();
+    private final Map<Integer, Map<String, Effect>> actionEffects = new HashMap<>();
+    private final Map<Long, Effect> useEffects = new HashMap<>();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final List<Runnable> scripts = new CopyOnWriteArrayList<>();
+    private int minDelay = 1;
+    private int maxDelay = 1;
+    private int actionsPerTick = 10;
+    private int lastDue = 0;
+    private boolean bankOpen = false;
+    private volatile int tick = 0;
+
+    private long sent;
+    private long applied;
+    private long wasted;
+    private long scriptErrors;
+    private long totalLatency;
+    private int maxLatency;
+
+    /**
+     * @param seed seed of every random choice the simulator makes
+     */
+    public InventorySimulator(long seed)
+    {
+        this.random = new Random(seed);
+        containers.put(InventoryID.INV, new Container(ContainerCapacity.INVENTORY));
+        containers.put(InventoryID.WORN, new Container(ContainerCapacity.EQUIPMENT));
+        containers.put(InventoryID.BANK, new Container(0));
+    }
+
+    /**
+     * run the inventory services against this simulator
+     * @return this
+     */
+    public InventorySimulator install()
+    {
+        InventoryBackends.install(this);
+        return this;
+    }
+
+    /**
+     * go back to the live client if this simulator is installed
+     */
+    @Override
+    public void close()
+    {
+        if(InventoryBackends.get() == this)
+            InventoryBackends.reset();
+    }
+
+    /**
+     * @return random source for scripts and effects that should stay reproducible
+     */
+    public Random random()
+    {
+        return random;
+    }
+
+    /**
+     * @param minTicks fewest ticks between sending an action and its effect
+     * @param maxTicks most ticks between sending an action and its effect
+     */
+    public void setActionDelay(int minTicks, int maxTicks)
+    {
+        if(minTicks < 1 || maxTicks < minTicks)
+            throw new IllegalArgumentException("Invalid action delay " + minTicks + ".." + maxTicks);
+        withLock(() -> {
+            minDelay = minTicks;
+            maxDelay = maxTicks;
+        });
+    }
+
+    /**
+     * @param actionsPerTick most actions applied per tick, the rest wait for the next one
+     */
+    public void setActionsPerTick(int actionsPerTick)
+    {
+        int budget = Math.max(1, actionsPerTick);
+        withLock(() -> {
+            this.actionsPerTick = budget;
+        });
+    }
+
+    /**
+     * define an item
+     * @param id item id
+     * @param name name
+     * @param actions inventory actions, null for an empty action
+     * @return Definition, for the optional properties
+     */
+    public Definition define(int id, String name, String... actions)
+    {
+        Definition definition = new Definition(name, Arrays.copyOf(actions, Math.max(5, actions.length)));
+        definitions.put(id, definition);
+        return definition;
+    }
+
+    /**
+     * set what an item action does, replacing the default (drop/destroy remove the item,
+     * wield/wear/equip move it to the equipment, eat/drink/bury/scatter use up one, anything
+     * else does nothing)
+     * @param itemId item id
+     * @param action action name
+     * @param effect effect
+     */
+    public void onAction(int itemId, String action, Effect effect)
+    {
+        withLock(() -> actionEffects.computeIfAbsent(itemId, k -> new HashMap<>()).put(action.toLowerCase(Locale.ROOT), effect));
+    }
+
+    /**
+     * set what using an item on a target does, nothing by default
+     * @param kind one of the USE_ON kinds
+     * @param itemId item id
+     * @param targetId object id, ground item id, player index, npc index or target item id
+     * @param effect effect
+     */
+    public void onUse(ActionQueue.Kind kind, int itemId, int targetId, Effect effect)
+    {
+        withLock(() -> useEffects.put(useKey(kind, itemId, targetId), effect));
+    }
+
+    /**
+     * add a script, run once per tick after the tick's events
+     * @param script script
+     */
+    public void addScript(Runnable script)
+    {
+        scripts.add(script);
+    }
+
+    /**
+     * create or resize a container
+     * @param containerId container id
+     * @param size number of slots
+     */
+    public void container(int containerId, int size)
+    {
+        Container container = new Container(size);
+        container.changed = true;
+        withLock(() -> {
+            containers.put(containerId, container);
+        });
+    }
+
+    /**
+     * set a slot, visible from the next tick
+     * @param containerId container id
+     * @param slot slot
+     * @param id item id, -1 to empty the slot
+     * @param quantity quantity
+     */
+    public void set(int containerId, int slot, int id, int quantity)
+    {
+        withLock(() -> container(containerId).set(slot, id, quantity));
+    }
+
+    /**
+     * set an inventory slot, visible from the next tick
+     * @param slot slot
+     * @param id item id, -1 to empty the slot
+     * @param quantity quantity
+     */
+    public void set(int slot, int id, int quantity)
+    {
+        set(InventoryID.INV, slot, id, quantity);
+    }
+
+    /**
+     * empty an inventory slot
+     * @param slot slot
+     */
+    public void clear(int slot)
+    {
+        set(slot, -1, 0);
+    }
+
+    /**
+     * take some of an inventory slot's stack, emptying the slot when none is left
+     * @param slot slot
+     * @param quantity quantity
+     */
+    public void remove(int slot, int quantity)
+    {
+        withLock(() -> {
+            Container inventory = container(InventoryID.INV);
+            int left = inventory.quantities[slot] - quantity;
+            if(left > 0)
+                inventory.set(slot, inventory.ids[slot], left);
+            else
+                inventory.set(slot, -1, 0);
+        });
+    }
+
+    /**
+     * add an item to the inventory, stacking it if its definition is stackable
+     * @param id item id
+     * @param quantity quantity
+     * @return false if the inventory had no room for all of it
+     */
+    public boolean add(int id, int quantity)
+    {
+        return withLock(() -> {
+            Container inventory = container(InventoryID.INV);
+            Definition definition = definitions.get(id);
+            if(definition != null && definition.stackable)
+            {
+                int slot = inventory.indexOf(id);
+                if(slot == -1)
+                    slot = inventory.indexOf(-1);
+                if(slot == -1)
+                    return false;
+                inventory.set(slot, id, inventory.ids[slot] == id ? inventory.quantities[slot] + quantity : quantity);
+                return true;
+            }
+            for(int i = 0; i < quantity; i++)
+            {
+                int slot = inventory.indexOf(-1);
+                if(slot == -1)
+                    return false;
+                inventory.set(slot, id, 1);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * put an item in every empty inventory slot
+     * @param id item id
+     * @param quantity quantity per slot
+     */
+    public void fill(int id, int quantity)
+    {
+        withLock(() -> {
+            Container inventory = container(InventoryID.INV);
+            for(int slot = 0; slot < inventory.ids.length; slot++)
+            {
+                if(inventory.ids[slot] == -1)
+                    inventory.set(slot, id, quantity);
+            }
+        });
+    }
+
+    /**
+     * @param containerId container id
+     * @param slot slot
+     * @return item id in the slot, -1 if empty
+     */
+    public int idAt(int containerId, int slot)
+    {
+        return withLock(() -> container(containerId).ids[slot]);
+    }
+
+    /**
+     * @param containerId container id
+     * @param slot slot
+     * @return quantity in the slot, 0 if empty
+     */
+    public int quantityAt(int containerId, int slot)
+    {
+        return withLock(() -> container(containerId).quantities[slot]);
+    }
+
+    /**
+     * open or close the bank, seen by InventoryAPI immediately
+     * @param open open
+     */
+    public void setBankOpen(boolean open)
+    {
+        withLock(() -> {
+            bankOpen = open;
+            if(open)
+                InventoryWidgets.onWidgetLoaded(InterfaceID.BANKMAIN);
+            else
+                InventoryWidgets.onWidgetClosed(InterfaceID.BANKMAIN);
+        });
+    }
+
+    /**
+     * @return current tick
+     */
+    public int getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * advance one game tick: apply the due actions, fire the container changes and the game
+     * tick, then run the scripts
+     */
+    public void tick()
+    {
+        clientThread.lock();
+        try
+        {
+            tick++;
+            int budget = actionsPerTick;
+            while(budget > 0 && !pending.isEmpty() && pending.peekFirst().dueTick <= tick)
+            {
+                apply(pending.pollFirst());
+                budget--;
+            }
+            for(Map.Entry<Integer, Container> entry : containers.entrySet())
+            {
+                if(entry.getValue().changed)
+                {
+                    entry.getValue().changed = false;
+                    InventoryEvents.containerChanged(entry.getKey());
+                }
+            }
+            InventoryEvents.gameTick();
+        }
+        finally
+        {
+            clientThread.unlock();
+        }
+
+        for(Runnable script : scripts)
+        {
+            try
+            {
+                script.run();
+            }
+            catch (RuntimeException e)
+            {
+                long errors = withLock(() -> ++scriptErrors);
+                if(errors == 1)
+                    Logger.warn("Simulated script failed on tick " + tick + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * install the simulator if needed and run a number of ticks
+     * @param ticks ticks
+     * @return Report of this run
+     */
+    public Report run(int ticks)
+    {
+        if(InventoryBackends.get() != this)
+            install();
+        withLock(() -> {
+            sent = applied = wasted = scriptErrors = totalLatency = 0;
+            maxLatency = 0;
+        });
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean allocations = threads instanceof com.sun.management.ThreadMXBean;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocations ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId) : -1;
+        long start = System.nanoTime();
+        for(int i = 0; i < ticks; i++)
+        {
+            tick();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocations ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId) - allocatedBefore : -1;
+        return withLock(() -> new Report(ticks, sent, applied, wasted, pending.size(), scriptErrors, totalLatency, maxLatency, elapsed, allocated));
+    }
+
+    @Override
+    public <T> T invoke(Supplier<T> task)
+    {
+        return withLock(task);
+    }
+
+    @Override
+    public int tickCount()
+    {
+        return tick;
+    }
+
+    @Override
+    public List<ItemEx> items(int containerId)
+    {
+        return withLock(() -> {
+            Container container = containers.get(containerId);
+            List<ItemEx> items = new ArrayList<>();
+            if(container == null)
+                return items;
+            for(int slot = 0; slot < container.ids.length; slot++)
+            {
+                if(container.ids[slot] != -1)
+                    items.add(new ItemEx(new Item(container.ids[slot], container.quantities[slot]), slot));
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public int containerSize(int containerId)
+    {
+        return withLock(() -> {
+            Container container = containers.get(containerId);
+            return container != null ? container.ids.length : 0;
+        });
+    }
+
+    @Override
+    public boolean isBankOpen()
+    {
+        return withLock(() -> bankOpen);
+    }
+
+    @Override
+    public Widget widget(int widgetId)
+    {
+        return null;
+    }
+
+    @Override
+    public String itemName(int itemId)
+    {
+        Definition definition = definitions.get(itemId);
+        return definition != null ? definition.name : null;
+    }
+
+    @Override
+    public int canonicalId(int itemId)
+    {
+        Definition definition = definitions.get(itemId);
+        return definition != null && definition.unnotedId != -1 ? definition.unnotedId : itemId;
+    }
+
+    @Override
+    public String[] actions(ItemEx item)
+    {
+        return actions(item.getId());
+    }
+
+    @Override
+    public String[] actions(int itemId)
+    {
+        Definition definition = definitions.get(itemId);
+        return definition != null ? definition.actions : new String[5];
+    }
+
+    @Override
+    public void itemAction(int action, int widgetId, int slot, int itemId)
+    {
+        send(ActionQueue.Kind.ITEM_ACTION, slot, itemId, action, -1, -1);
+    }
+
+    @Override
+    public void widgetAction(Widget widget, String... actions)
+    {
+        throw new IllegalStateException("Widgets are not simulated");
+    }
+
+    @Override
+    public void useOnTileObject(int widgetId, int itemId, int slot, int objectId, int x, int y)
+    {
+        send(ActionQueue.Kind.USE_ON_OBJECT, slot, itemId, 0, objectId, -1);
+    }
+
+    @Override
+    public void useOnGroundItem(int widgetId, int itemId, int slot, int groundItemId, int x, int y)
+    {
+        send(ActionQueue.Kind.USE_ON_GROUND_ITEM, slot, itemId, 0, groundItemId, -1);
+    }
+
+    @Override
+    public void useOnPlayer(int widgetId, int itemId, int slot, int playerIndex)
+    {
+        send(ActionQueue.Kind.USE_ON_PLAYER, slot, itemId, 0, playerIndex, -1);
+    }
+
+    @Override
+    public void useOnNpc(int widgetId, int itemId, int slot, int npcIndex)
+    {
+        send(ActionQueue.Kind.USE_ON_NPC, slot, itemId, 0, npcIndex, -1);
+    }
+
+    @Override
+    public void useOnWidget(int widgetId, int itemId, int slot, int targetWidgetId, int targetItemId, int targetSlot)
+    {
+        send(ActionQueue.Kind.USE_ON_ITEM, slot, itemId, 0, targetItemId, targetSlot);
+    }
+
+    @Override
+    public void register(Object subscriber)
+    {
+        // events are fired by tick()
+    }
+
+    private void send(ActionQueue.Kind kind, int slot, int itemId, int action, int targetId, int targetSlot)
+    {
+        withLock(() -> {
+            int delay = minDelay + (maxDelay > minDelay ? random.nextInt(maxDelay - minDelay + 1) : 0);
+            // the server handles actions in the order they were sent
+            lastDue = Math.max(lastDue, tick + delay);
+            pending.addLast(new Pending(kind, slot, itemId, action, targetId, targetSlot, tick, lastDue));
+            sent++;
+        });
+    }
+
+    private void apply(Pending action)
+    {
+        Container inventory = container(InventoryID.INV);
+        if(inventory.ids[action.slot] != action.itemId
+                || (action.targetSlot != -1 && inventory.ids[action.targetSlot] != action.targetId))
+        {
+            // the item moved or is gone, the server ignores the click
+            wasted++;
+            return;
+        }
+
+        Effect effect;
+        if(action.kind == ActionQueue.Kind.ITEM_ACTION)
+            effect = itemEffect(action.itemId, action.action);
+        else
+            effect = useEffects.getOrDefault(useKey(action.kind, action.itemId, action.targetId), NOTHING);
+        effect.apply(this, action.slot, action.targetSlot);
+
+        applied++;
+        int latency = tick - action.sentTick;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    private Effect itemEffect(int itemId, int action)
+    {
+        Definition definition = definitions.get(itemId);
+        String name = InventoryWidgets.actionName(definition != null ? definition.actions : null, action);
+        if(name == null)
+        {
+            // the fixed indexes of ActionIndexCache
+            if(action == 7)
+                name = "drop";
+            else if(action == 3)
+                name = "wield";
+            else
+                return NOTHING;
+        }
+        name = name.toLowerCase(Locale.ROOT);
+        Map<String, Effect> custom = actionEffects.get(itemId);
+        Effect effect = custom != null ? custom.get(name) : null;
+        return effect != null ? effect : DEFAULT_EFFECTS.getOrDefault(name, NOTHING);
+    }
+
+    private void equip(int slot)
+    {
+        Container inventory = container(InventoryID.INV);
+        Container worn = container(InventoryID.WORN);
+        int id = inventory.ids[slot];
+        Definition definition = definitions.get(id);
+        int wornSlot = definition != null && definition.equipSlot >= 0 ? definition.equipSlot : worn.indexOf(-1);
+        if(wornSlot == -1)
+            wornSlot = 0;
+        int oldId = worn.ids[wornSlot];
+        int oldQuantity = worn.quantities[wornSlot];
+        worn.set(wornSlot, id, inventory.quantities[slot]);
+        inventory.set(slot, oldId, oldQuantity);
+    }
+
+    private Container container(int containerId)
+    {
+        Container container = containers.get(containerId);
+        if(container == null)
+            throw new IllegalArgumentException("Unknown container " + containerId);
+        return container;
+    }
+
+    private static long useKey(ActionQueue.Kind kind, int itemId, int targetId)
+    {
+        return ((long) kind.ordinal() << 56) ^ ((long) itemId << 28) ^ (targetId & 0xFFFFFFFL);
+    }
+
+    private <T> T withLock(Supplier<T> task)
+    {
+        clientThread.lock();
+        try
+        {
+            return task.get();
+        }
+        finally
+        {
+            clientThread.unlock();
+        }
+    }
+
+    private void withLock(Runnable task)
+    {
+        clientThread.lock();
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            clientThread.unlock();
+        }
+    }
+
+    /**
+     * simulated item definition
+     */
+    public static final class Definition
+    {
+        private final String name;
+        private final String[] actions;
+        private volatile int unnotedId = -1;
+        private volatile int equipSlot = -1;
+        private volatile boolean stackable;
+
+        private Definition(String name, String[] actions)
+        {
+            this.name = name;
+            this.actions = actions;
+        }
+
+        /**
+         * @param unnotedId id of the un-noted item this is the note of
+         * @return this
+         */
+        public Definition noteOf(int unnotedId)
+        {
+            this.unnotedId = unnotedId;
+            this.stackable = true;
+            return this;
+        }
+
+        /**
+         * @return this
+         */
+        public Definition stackable()
+        {
+            this.stackable = true;
+            return this;
+        }
+
+        /**
+         * @param equipSlot equipment slot the item goes to when equipped
+         * @return this
+         */
+        public Definition equipSlot(int equipSlot)
+        {
+            this.equipSlot = equipSlot;
+            return this;
+        }
+    }
+
+    /**
+     * counters of one {@link #run}
+     */
+    @Getter
+    public static final class Report
+    {
+        private final int ticks;
+        private final long actionsSent;
+        private final long actionsApplied;
+        /**
+         * actions ignored because their item had left its slot when they were applied
+         */
+        private final long actionsWasted;
+        private final long actionsPending;
+        private final long scriptErrors;
+        private final long totalLatencyTicks;
+        private final int maxLatencyTicks;
+        private final long elapsedNanos;
+        /**
+         * bytes allocated by the driving thread, -1 if the JVM does not tell
+         */
+        private final long allocatedBytes;
+
+        private Report(int ticks, long actionsSent, long actionsApplied, long actionsWasted, long actionsPending,
+                       long scriptErrors, long totalLatencyTicks, int maxLatencyTicks, long elapsedNanos, long allocatedBytes)
+        {
+            this.ticks = ticks;
+            this.actionsSent = actionsSent;
+            this.actionsApplied = actionsApplied;
+            this.actionsWasted = actionsWasted;
+            this.actionsPending = actionsPending;
+            this.scriptErrors = scriptErrors;
+            this.totalLatencyTicks = totalLatencyTicks;
+            this.maxLatencyTicks = maxLatencyTicks;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * @return mean ticks from sending an action to its effect
+         */
+        public double averageLatencyTicks()
+        {
+            return actionsApplied == 0 ? 0 : (double) totalLatencyTicks / actionsApplied;
+        }
+
+        /**
+         * @return simulated ticks per wall clock second
+         */
+        public double ticksPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return actions sent per wall clock second
+         */
+        public double actionsPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : actionsSent * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT,
+                    "Report{ticks=%d, sent=%d, applied=%d, wasted=%d, pending=%d, scriptErrors=%d, latency=%.2f/%d ticks, %.0f ticks/s, %.0f actions/s, allocated=%d B}",
+                    ticks, actionsSent, actionsApplied, actionsWasted, actionsPending, scriptErrors,
+                    averageLatencyTicks(), maxLatencyTicks, ticksPerSecond(), actionsPerSecond(), allocatedBytes);
+        }
+    }
+
+    private static final class Container
+    {
+        private final int[] ids;
+        private final int[] quantities;
+        private boolean changed;
+
+        private Container(int size)
+        {
+            ids = new int[size];
+            quantities = new int[size];
+            Arrays.fill(ids, -1);
+        }
+
+        private void set(int slot, int id, int quantity)
+        {
+            if(ids[slot] == id && quantities[slot] == (id == -1 ? 0 : quantity))
+                return;
+            ids[slot] = id;
+            quantities[slot] = id == -1 ? 0 : quantity;
+            changed = true;
+        }
+
+        private int indexOf(int id)
+        {
+            for(int slot = 0; slot < ids.length; slot++)
+            {
+                if(ids[slot] == id)
+                    return slot;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Pending
+    {
+        private final ActionQueue.Kind kind;
+        private final int slot;
+        private final int itemId;
+        private final int action;
+        private final int targetId;
+        private final int targetSlot;
+        private final int sentTick;
+        private final int dueTick;
+
+        private Pending(ActionQueue.Kind kind, int slot, int itemId, int action, int targetId, int targetSlot, int sentTick, int dueTick)
+        {
+            this.kind = kind;
+            this.slot = slot;
+            this.itemId = itemId;
+            this.action = action;
+            this.targetId = targetId;
+            this.targetSlot = targetSlot;
+            this.sentTick = sentTick;
+            this.dueTick = dueTick;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.tonic.services.inventory;
+
+import com.tonic.api.widgets.InventoryAPI;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Event-driven inventory condition waits.
+ * <p>
+ * Conditions are evaluated once when registered and afterwards only when an
+ * ItemContainerChanged for the inventory touches something they depend on.
+ * Nothing runs while the inventory is idle.
+ */
+public class InventoryWatcher
+{
+    private static final List<Subscription> SUBSCRIPTIONS = new CopyOnWriteArrayList<>();
+    // client thread only
+    private static final IntIntMap CHANGED = new IntIntMap(32);
+    private static ItemIndex last;
+
+    /**
+     * complete a future the first time the condition holds
+     * @param condition condition
+     * @return future completed with the snapshot that satisfied the condition
+     */
+    public static CompletableFuture<ContainerSnapshot> when(InventoryCondition condition)
+    {
+        CompletableFuture<ContainerSnapshot> future = new CompletableFuture<>();
+        Subscription subscription = new Subscription(condition, future::complete, true);
+        future.whenComplete((s, ex) -> subscription.cancel());
+        register(subscription);
+        return future;
+    }
+
+    /**
+     * fire a callback every time the condition turns from false to true
+     * @param condition condition
+     * @param callback callback, run on the client thread
+     * @return Subscription, cancel it to stop receiving callbacks
+     */
+    public static Subscription onTrue(InventoryCondition condition, Consumer<ContainerSnapshot> callback)
+    {
+        Subscription subscription = new Subscription(condition, callback, false);
+        register(subscription);
+        return subscription;
+    }
+
+    private static void register(Subscription subscription)
+    {
+        InventoryEvents.install();
+        // on the client thread, so callbacks never run elsewhere and the first evaluation is
+        // ordered with the ones driven by inventory changes
+        InventoryBackends.get().invoke(() -> {
+            SUBSCRIPTIONS.add(subscription);
+            ContainerSnapshot snapshot = InventoryAPI.snapshot();
+            // baseline for the next diff, so ids leaving the inventory are seen as changed
+            if(last == null)
+                last = snapshot.getIndex();
+            subscription.evaluate(snapshot);
+            return null;
+        });
+    }
+
+    static void onInventoryChanged()
+    {
+        if(SUBSCRIPTIONS.isEmpty())
+        {
+            last = null;
+            return;
+        }
+
+        ContainerSnapshot snapshot = InventoryAPI.snapshot();
+        ItemIndex index = snapshot.getIndex();
+        ItemIndex before = last;
+        boolean occupancyChanged = diff(before, index);
+        last = index;
+
+        for(Subscription subscription : SUBSCRIPTIONS)
+        {
+            // without a baseline the removed ids are unknown, so every condition may have changed
+            if(before == null || subscription.condition.affectedBy(CHANGED, occupancyChanged))
+                subscription.evaluate(snapshot);
+        }
+    }
+
+    /**
+     * fill CHANGED with every id whose slot id or quantity differs
+     * @return true if the number of occupied slots changed
+     */
+    private static boolean diff(ItemIndex before, ItemIndex after)
+    {
+        CHANGED.clear();
+        if(before == null)
+        {
+            for(int slot = 0; slot < after.capacity(); slot++)
+            {
+                CHANGED.put(after.idAt(slot), 1);
+            }
+            return true;
+        }
+
+        int occupiedBefore = 0;
+        int occupiedAfter = 0;
+        for(int slot = 0; slot < after.capacity(); slot++)
+        {
+            int oldId = before.idAt(slot);
+            int newId = after.idAt(slot);
+            if(oldId != -1)
+                occupiedBefore++;
+            if(newId != -1)
+                occupiedAfter++;
+            if(oldId != newId || before.quantityAt(slot) != after.quantityAt(slot))
+            {
+                CHANGED.put(oldId, 1);
+                CHANGED.put(newId, 1);
+            }
+        }
+        return occupiedBefore != occupiedAfter;
+    }
+
+    /**
+     * a registered condition
+     */
+    public static final class Subscription
+    {
+        private final InventoryCondition condition;
+        private final Consumer<ContainerSnapshot> callback;
+        private final boolean once;
+        private boolean lastResult = false;
+
+        private Subscription(InventoryCondition condition, Consumer<ContainerSnapshot> callback, boolean once)
+        {
+            this.condition = condition;
+            this.callback = callback;
+            this.once = once;
+        }
+
+        /**
+         * stop evaluating this condition
+         */
+        public void cancel()
+        {
+            SUBSCRIPTIONS.remove(this);
+        }
+
+        private synchronized void evaluate(ContainerSnapshot snapshot)
+        {
+            boolean result = condition.getPredicate().test(snapshot);
+            boolean rising = result && !lastResult;
+            lastResult = result;
+            if(!rising)
+                return;
+            if(once)
+                cancel();
+            callback.accept(snapshot);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.tonic.services.inventory;
+
+import net.runelite.api.gameval.InterfaceID;
+import net.runelite.api.widgets.Widget;
+
+/**
+ * Cached slot to widget resolution for the inventory, bank aware.
+ * <p>
+ * With the bank open inventory items live in the bankside container, otherwise in the
+ * regular inventory. The bank state and the item widgets of both containers are cached
+ * and dropped on WidgetLoaded/WidgetClosed for their interfaces and on inventory changes
+ * (the client rebuilds the item widgets then), so a lookup is an array read.
+ */
+public class InventoryWidgets
+{
+    private static final int INVENTORY_GROUP = InterfaceID.Inventory.ITEMS >>> 16;
+    private static final int BANKSIDE_GROUP = InterfaceID.Bankside.ITEMS >>> 16;
+    private static final int BANK_GROUP = InterfaceID.BANKMAIN;
+
+    /**
+     * null until the first bank open/close is seen
+     */
+    private static volatile Boolean bankOpen;
+    private static volatile Widget[] inventorySlots;
+    private static volatile Widget[] banksideSlots;
+    // bumped on every invalidation, so a lookup racing with one does not store stale widgets
+    private static volatile int generation;
+
+    /**
+     * @return true if the bank is open
+     */
+    public static boolean isBankOpen()
+    {
+        InventoryEvents.install();
+        Boolean open = bankOpen;
+        if(open == null)
+        {
+            int seen = generation;
+            open = InventoryBackends.get().isBankOpen();
+            synchronized (InventoryWidgets.class)
+            {
+                // a bank open/close seen meanwhile is newer than what we read
+                if(seen == generation && bankOpen == null)
+                    bankOpen = open;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * @return widget id of the container currently holding the inventory items
+     */
+    public static int container()
+    {
+        return isBankOpen() ? InterfaceID.Bankside.ITEMS : InterfaceID.Inventory.ITEMS;
+    }
+
+    /**
+     * @param slot inventory slot
+     * @return item widget of the slot in the current container, or null
+     */
+    public static Widget slot(int slot)
+    {
+        boolean bank = isBankOpen();
+        Widget[] slots = bank ? banksideSlots : inventorySlots;
+        if(slots == null)
+        {
+            int seen = generation;
+            slots = children(bank ? InterfaceID.Bankside.ITEMS : InterfaceID.Inventory.ITEMS);
+            if(slots == null)
+                return null;
+            synchronized (InventoryWidgets.class)
+            {
+                if(seen == generation)
+                {
+                    if(bank)
+                        banksideSlots = slots;
+                    else
+                        inventorySlots = slots;
+                }
+            }
+        }
+        return slot >= 0 && slot < slots.length ? slots[slot] : null;
+    }
+
+    /**
+     * @param widget item widget
+     * @param action action name
+     * @return true if the widget offers the action, compared ignoring case
+     */
+    public static boolean hasAction(Widget widget, String action)
+    {
+        String[] actions = widget.getActions();
+        if(actions == null)
+            return false;
+        for(String candidate : actions)
+        {
+            if(candidate != null && candidate.equalsIgnoreCase(action))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * translate an inventory action index to the item's action name, so it can be used on the
+     * bankside widget whose action indexes differ
+     * @param actions the item's inventory actions
+     * @param index inventory widget action index
+     * @return action name, or null if the index does not map to one of the item's actions
+     */
+    public static String actionName(String[] actions, int index)
+    {
+        // inverse of the index mapping in ActionIndexCache
+        int i = index <= 5 ? index - 2 : index - 3;
+        if(actions == null || index == 6 || i < 0 || i >= actions.length)
+            return null;
+        return actions[i];
+    }
+
+    /**
+     * drop every cached widget and the bank state
+     */
+    public static synchronized void invalidate()
+    {
+        generation++;
+        bankOpen = null;
+        inventorySlots = null;
+        banksideSlots = null;
+    }
+
+    static synchronized void onWidgetLoaded(int groupId)
+    {
+        if(groupId == BANK_GROUP)
+            bankOpen = true;
+        widgetsChanged(groupId);
+    }
+
+    static synchronized void onWidgetClosed(int groupId)
+    {
+        if(groupId == BANK_GROUP)
+            bankOpen = false;
+        widgetsChanged(groupId);
+    }
+
+    static synchronized void onInventoryChanged()
+    {
+        generation++;
+        inventorySlots = null;
+        banksideSlots = null;
+    }
+
+    private static void widgetsChanged(int groupId)
+    {
+        if(groupId == INVENTORY_GROUP)
+        {
+            generation++;
+            inventorySlots = null;
+        }
+        else if(groupId == BANKSIDE_GROUP || groupId == BANK_GROUP)
+        {
+            generation++;
+            banksideSlots = null;
+        }
+    }
+
+    private static Widget[] children(int widgetId)
+    {
+        Widget container = InventoryBackends.get().widget(widgetId);
+        if(container == null)
+            return null;
+        return container.getChildren();
+    }
+}
@@ -0,0 +1,82 @@
+package com.tonic.services.inventory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per item id cache of definition-derived values used by the container index.
+ * Values never change for an item id, so entries are kept for the life of the client.
+ * Must be filled from the client thread.
+ */
+final class ItemDefinitionCache
+{
+    private static final int MAX_FOLDED = 4096;
+    private static final IntIntMap CANONICAL = new IntIntMap(256);
+    private static final Map<Integer, String> NAMES = new HashMap<>();
+    private static final Map<String, String> FOLDED = new ConcurrentHashMap<>();
+
+    private ItemDefinitionCache()
+    {
+    }
+
+    /**
+     * resolve the canonical (un-noted, non-placeholder) id of an item
+     * @param itemId item id
+     * @return canonical id
+     */
+    static synchronized int canonicalId(int itemId)
+    {
+        if(CANONICAL.containsKey(itemId))
+            return CANONICAL.get(itemId);
+
+        int canonical = InventoryBackends.get().canonicalId(itemId);
+        CANONICAL.put(itemId, canonical);
+        return canonical;
+    }
+
+    /**
+     * resolve the case-folded, interned name of an item
+     * @param itemId item id
+     * @return folded name, empty if the item has none
+     */
+    static synchronized String name(int itemId)
+    {
+        String name = NAMES.get(itemId);
+        if(name != null)
+            return name;
+
+        name = fold(InventoryBackends.get().itemName(itemId));
+        NAMES.put(itemId, name);
+        return name;
+    }
+
+    /**
+     * drop the definition-derived values, e.g. after switching backends
+     */
+    static synchronized void clear()
+    {
+        CANONICAL.clear();
+        NAMES.clear();
+    }
+
+    /**
+     * case-fold and intern a name. Results for repeated inputs are cached so lookups
+     * with the same string skip the lower-casing.
+     * @param name name
+     * @return folded, interned name
+     */
+    static String fold(String name)
+    {
+        if(name == null)
+            return "";
+        String folded = FOLDED.get(name);
+        if(folded != null)
+            return folded;
+        folded = name.toLowerCase(Locale.ROOT).intern();
+        if(FOLDED.size() < MAX_FOLDED)
+            FOLDED.put(name, folded);
+        return folded;
+    }
+}
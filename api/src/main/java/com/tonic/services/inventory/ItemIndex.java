@@ -0,0 +1,141 @@
+package com.tonic.services.inventory;
+
+import com.tonic.data.ItemEx;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive index over a container snapshot. Slots are flattened into id/quantity arrays
+ * and per-id totals are kept in open-addressing maps, one keyed by item id and one by
+ * canonical (un-noted) id. Every query method is allocation-free.
+ */
+public final class ItemIndex
+{
+    private final int[] slotIds;
+    private final int[] slotQuantities;
+    private final IntIntMap counts;
+    private final IntIntMap canonicalCounts;
+
+    ItemIndex(int capacity, List<ItemEx> items)
+    {
+        slotIds = new int[capacity];
+        slotQuantities = new int[capacity];
+        Arrays.fill(slotIds, -1);
+        counts = new IntIntMap(items.size());
+        canonicalCounts = new IntIntMap(items.size());
+
+        for(ItemEx item : items)
+        {
+            int slot = item.getSlot();
+            int id = item.getId();
+            int quantity = item.getQuantity();
+            if(slot >= 0 && slot < capacity)
+            {
+                slotIds[slot] = id;
+                slotQuantities[slot] = quantity;
+            }
+            counts.add(id, quantity);
+            canonicalCounts.add(ItemDefinitionCache.canonicalId(id), quantity);
+        }
+    }
+
+    /**
+     * @param slot slot
+     * @return item id in the slot or -1 if empty
+     */
+    public int idAt(int slot)
+    {
+        return slot < 0 || slot >= slotIds.length ? -1 : slotIds[slot];
+    }
+
+    /**
+     * @param slot slot
+     * @return item quantity in the slot or 0 if empty
+     */
+    public int quantityAt(int slot)
+    {
+        return slot < 0 || slot >= slotQuantities.length ? 0 : slotQuantities[slot];
+    }
+
+    /**
+     * @return number of slots covered by the index
+     */
+    public int capacity()
+    {
+        return slotIds.length;
+    }
+
+    /**
+     * @param id item id
+     * @return true if any slot holds the id
+     */
+    public boolean contains(int id)
+    {
+        return counts.containsKey(id);
+    }
+
+    /**
+     * @param ids item ids
+     * @return true if every id is present
+     */
+    public boolean containsAll(int... ids)
+    {
+        for(int id : ids)
+        {
+            if(!counts.containsKey(id))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param ids item ids
+     * @return true if any id is present
+     */
+    public boolean containsAny(int... ids)
+    {
+        for(int id : ids)
+        {
+            if(counts.containsKey(id))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * total quantity held of any of the ids, duplicate ids are only counted once
+     * @param ids item ids
+     * @return int
+     */
+    public int count(int... ids)
+    {
+        return sum(counts, ids);
+    }
+
+    /**
+     * total quantity held of items whose canonical id matches any of the ids
+     * @param ids canonical item ids
+     * @return int
+     */
+    public int canonicalCount(int... ids)
+    {
+        return sum(canonicalCounts, ids);
+    }
+
+    private static int sum(IntIntMap map, int[] ids)
+    {
+        int total = 0;
+        outer:
+        for(int i = 0; i < ids.length; i++)
+        {
+            for(int j = 0; j < i; j++)
+            {
+                if(ids[j] == ids[i])
+                    continue outer;
+            }
+            total += map.get(ids[i]);
+        }
+        return total;
+    }
+}
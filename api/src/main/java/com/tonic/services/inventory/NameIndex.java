@@ -0,0 +1,156 @@
+package com.tonic.services.inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Name lookup index over a container snapshot. Keys are case-folded, interned item names
+ * mapped to a bitmask of the slots holding that name, so a name query is a single hash probe.
+ */
+public final class NameIndex
+{
+    private final Map<String, Entry> entries;
+    private final int capacity;
+
+    NameIndex(ItemIndex index)
+    {
+        entries = new HashMap<>();
+        capacity = index.capacity();
+        int words = (index.capacity() + 63) >>> 6;
+        for(int slot = 0; slot < index.capacity(); slot++)
+        {
+            int id = index.idAt(slot);
+            if(id == -1)
+                continue;
+            String name = ItemDefinitionCache.name(id);
+            Entry entry = entries.get(name);
+            if(entry == null)
+            {
+                entry = new Entry(words, slot);
+                entries.put(name, entry);
+            }
+            entry.mask[slot >>> 6] |= 1L << slot;
+            entry.total += index.quantityAt(slot);
+        }
+    }
+
+    /**
+     * @param name item name, case-insensitive
+     * @return true if any slot holds an item with the name
+     */
+    public boolean contains(String name)
+    {
+        if(name == null || name.isEmpty())
+            return false;
+        return entries.containsKey(ItemDefinitionCache.fold(name));
+    }
+
+    /**
+     * @param name item name, case-insensitive
+     * @return lowest slot holding the name, or -1
+     */
+    public int firstSlot(String name)
+    {
+        if(name == null || name.isEmpty())
+            return -1;
+        Entry entry = entries.get(ItemDefinitionCache.fold(name));
+        return entry == null ? -1 : entry.first;
+    }
+
+    /**
+     * @param names item names, case-insensitive
+     * @return lowest slot holding any of the names, or -1
+     */
+    public int firstSlot(String... names)
+    {
+        int first = -1;
+        for(String name : names)
+        {
+            int slot = firstSlot(name);
+            if(slot != -1 && (first == -1 || slot < first))
+                first = slot;
+        }
+        return first;
+    }
+
+    /**
+     * @param name item name, case-insensitive
+     * @param slot slot
+     * @return true if the slot holds an item with the name
+     */
+    public boolean inSlot(String name, int slot)
+    {
+        if(name == null || name.isEmpty() || slot < 0 || slot >= capacity)
+            return false;
+        Entry entry = entries.get(ItemDefinitionCache.fold(name));
+        return entry != null && (entry.mask[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * @param names item names, case-insensitive
+     * @return true if every name is present
+     */
+    public boolean containsAll(String... names)
+    {
+        for(String name : names)
+        {
+            if(!contains(name))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param names item names, case-insensitive
+     * @return true if any name is present
+     */
+    public boolean containsAny(String... names)
+    {
+        for(String name : names)
+        {
+            if(contains(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * total quantity held of any of the names, duplicate names are only counted once
+     * @param names item names, case-insensitive
+     * @return int
+     */
+    public int count(String... names)
+    {
+        int total = 0;
+        outer:
+        for(int i = 0; i < names.length; i++)
+        {
+            if(names[i] == null || names[i].isEmpty())
+                continue;
+            String folded = ItemDefinitionCache.fold(names[i]);
+            for(int j = 0; j < i; j++)
+            {
+                // folded names are interned
+                if(ItemDefinitionCache.fold(names[j]) == folded)
+                    continue outer;
+            }
+            Entry entry = entries.get(folded);
+            if(entry != null)
+                total += entry.total;
+        }
+        return total;
+    }
+
+    private static final class Entry
+    {
+        private final long[] mask;
+        private final int first;
+        private int total;
+
+        private Entry(int words, int first)
+        {
+            this.mask = new long[words];
+            this.first = first;
+        }
+    }
+}
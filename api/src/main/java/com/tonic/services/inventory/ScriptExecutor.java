@@ -0,0 +1,148 @@
+package com.tonic.services.inventory;
+
+import com.tonic.Logger;
+import com.tonic.api.widgets.InventoryAPI;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Executor for inventory-driven automation scripts.
+ * <p>
+ * On a JVM with virtual threads every task gets its own virtual thread, so thousands of
+ * scripts can wait on inventory conditions without holding an OS thread each. Older JVMs
+ * fall back to a cached daemon pool. All waits park on {@link ChangeSignal}s fed by game
+ * ticks and inventory changes instead of sleeping in a loop.
+ */
+public class ScriptExecutor
+{
+    private static final long TICK_MILLIS = 600;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+    /**
+     * signalled on every game tick
+     */
+    public static final ChangeSignal TICKS = new ChangeSignal();
+
+    /**
+     * signalled on every inventory change
+     */
+    public static final ChangeSignal INVENTORY = new ChangeSignal();
+
+    private static volatile ExecutorService executor;
+
+    /**
+     * run a script task
+     * @param task task
+     * @return Future
+     */
+    public static Future<?> submit(Runnable task)
+    {
+        return executor().submit(task);
+    }
+
+    /**
+     * run a script task
+     * @param task task
+     * @param <T> result type
+     * @return Future
+     */
+    public static <T> Future<T> submit(Callable<T> task)
+    {
+        return executor().submit(task);
+    }
+
+    /**
+     * park the calling script until the inventory matches the condition
+     * @param condition condition evaluated against the current snapshot
+     * @param timeoutMillis maximum time to wait
+     * @return true if the condition was met, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean awaitInventory(Predicate<ContainerSnapshot> condition, long timeoutMillis) throws InterruptedException
+    {
+        InventoryEvents.install();
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(true)
+        {
+            long seen = INVENTORY.generation();
+            if(condition.test(InventoryAPI.snapshot()))
+                return true;
+            if(remaining <= 0)
+                return false;
+            // wake on change, or at least once a tick in case an event was missed
+            long slice = Math.min(remaining, TICK_NANOS);
+            remaining -= slice - Math.max(0, INVENTORY.await(seen, slice));
+        }
+    }
+
+    /**
+     * park the calling script for a number of game ticks
+     * @param ticks ticks to wait
+     * @return true if the ticks elapsed, false if no ticks arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean sleepTicks(int ticks) throws InterruptedException
+    {
+        InventoryEvents.install();
+        return TICKS.awaitSteps(ticks, (ticks + 2) * TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop accepting new scripts, running ones are interrupted
+     */
+    public static synchronized void shutdown()
+    {
+        if(executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    static void onTick()
+    {
+        TICKS.signal();
+    }
+
+    static void onInventoryChanged()
+    {
+        INVENTORY.signal();
+    }
+
+    private static ExecutorService executor()
+    {
+        ExecutorService current = executor;
+        if(current != null)
+            return current;
+        synchronized (ScriptExecutor.class)
+        {
+            if(executor == null)
+                executor = create();
+            return executor;
+        }
+    }
+
+    private static ExecutorService create()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            Logger.warn("Virtual threads unavailable, scripts will run on platform threads");
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "inventory-script");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.tonic.services.inventory;
+
+import lombok.Getter;
+
+/**
+ * One inventory slot changing between two consecutive container states.
+ * An empty slot has id -1 and quantity 0.
+ */
+@Getter
+public final class SlotDelta
+{
+    private final int slot;
+    private final int oldId;
+    private final int oldQuantity;
+    private final int newId;
+    private final int newQuantity;
+    private final int tick;
+
+    SlotDelta(int slot, int oldId, int oldQuantity, int newId, int newQuantity, int tick)
+    {
+        this.slot = slot;
+        this.oldId = oldId;
+        this.oldQuantity = oldQuantity;
+        this.newId = newId;
+        this.newQuantity = newQuantity;
+        this.tick = tick;
+    }
+
+    /**
+     * @return true if an item appeared in an empty slot
+     */
+    public boolean isAdded()
+    {
+        return oldId == -1 && newId != -1;
+    }
+
+    /**
+     * @return true if the slot was emptied
+     */
+    public boolean isRemoved()
+    {
+        return oldId != -1 && newId == -1;
+    }
+
+    /**
+     * @param id item id
+     * @return how much the quantity of the item in this slot went up (negative if it went down)
+     */
+    public int gained(int id)
+    {
+        int before = oldId == id ? oldQuantity : 0;
+        int after = newId == id ? newQuantity : 0;
+        return after - before;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SlotDelta{slot=" + slot + ", " + oldId + "x" + oldQuantity + " -> " + newId + "x" + newQuantity + ", tick=" + tick + "}";
+    }
+}
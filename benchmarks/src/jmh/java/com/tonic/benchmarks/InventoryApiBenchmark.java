@@ -0,0 +1,191 @@
+package com.tonic.benchmarks;
+
+import com.tonic.api.widgets.InventoryAPI;
+import com.tonic.data.ItemEx;
+import com.tonic.services.inventory.ActionIndexCache;
+import com.tonic.services.inventory.InventorySimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * InventoryAPI hot paths, run offline against an installed {@link InventorySimulator}.
+ * <p>
+ * The simulated inventory holds 24 items (distinct ids, a few noted stacks) and 4 empty slots.
+ * Lookups ask for an item near the end of the inventory and for one that is missing, the worst
+ * cases of a slot scan. Apart from {@link #snapshotRebuild} every read hits the cached snapshot,
+ * as repeated reads within one tick do in the client. Run with {@code -prof gc} to get the
+ * allocation rate next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryApiBenchmark
+{
+    private static final int FIRST_ID = 1000;
+    private static final int ITEMS = 20;
+    private static final int NOTES = 4;
+    private static final int LAST_ID = FIRST_ID + ITEMS - 1;
+    private static final String LAST_NAME = "Item " + (ITEMS - 1);
+    private static final int MISSING_ID = 99;
+    private static final String MISSING_NAME = "Missing item";
+
+    private final Predicate<ItemEx> lastById = item -> item.getId() == LAST_ID;
+
+    private InventorySimulator simulator;
+    private ItemEx lastItem;
+    private int rebuilds;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        simulator = new InventorySimulator(1L).install();
+        simulator.define(MISSING_ID, MISSING_NAME, "Drop");
+        for(int i = 0; i < ITEMS; i++)
+        {
+            simulator.define(FIRST_ID + i, "Item " + i, "Eat", "Use", null, null, "Drop");
+            simulator.set(i, FIRST_ID + i, 1);
+        }
+        for(int i = 0; i < NOTES; i++)
+        {
+            int noteId = FIRST_ID + ITEMS + i;
+            simulator.define(noteId, "Item " + i, "Use", null, null, null, "Drop").noteOf(FIRST_ID + i);
+            simulator.set(ITEMS + i, noteId, 100);
+        }
+        // makes the contents visible and fires the container change
+        simulator.tick();
+        lastItem = InventoryAPI.getItem(LAST_ID);
+        if(lastItem == null || InventoryAPI.getEmptySlots() != 4)
+            throw new IllegalStateException("Simulated inventory not set up");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        simulator.close();
+    }
+
+    @Benchmark
+    public List<ItemEx> getItems()
+    {
+        return InventoryAPI.getItems();
+    }
+
+    @Benchmark
+    public ItemEx getItemById()
+    {
+        return InventoryAPI.getItem(LAST_ID);
+    }
+
+    @Benchmark
+    public ItemEx getItemByIdMissing()
+    {
+        return InventoryAPI.getItem(MISSING_ID);
+    }
+
+    @Benchmark
+    public ItemEx getItemByName()
+    {
+        return InventoryAPI.getItem(LAST_NAME);
+    }
+
+    @Benchmark
+    public ItemEx getItemByNameMissing()
+    {
+        return InventoryAPI.getItem(MISSING_NAME);
+    }
+
+    @Benchmark
+    public ItemEx getItemByPredicate()
+    {
+        return InventoryAPI.getItem(lastById);
+    }
+
+    @Benchmark
+    public boolean containsById()
+    {
+        return InventoryAPI.contains(FIRST_ID, LAST_ID);
+    }
+
+    @Benchmark
+    public boolean containsAnyById()
+    {
+        return InventoryAPI.containsAny(MISSING_ID, LAST_ID);
+    }
+
+    @Benchmark
+    public boolean containsByName()
+    {
+        return InventoryAPI.contains("Item 0", LAST_NAME);
+    }
+
+    @Benchmark
+    public boolean containsAnyByName()
+    {
+        return InventoryAPI.containsAny(MISSING_NAME, LAST_NAME);
+    }
+
+    @Benchmark
+    public int count()
+    {
+        return InventoryAPI.count(FIRST_ID, LAST_ID);
+    }
+
+    @Benchmark
+    public int countByName()
+    {
+        return InventoryAPI.count("Item 0", LAST_NAME);
+    }
+
+    @Benchmark
+    public int canonicalCount()
+    {
+        // the un-noted items and their notes
+        return InventoryAPI.canonicalCount(FIRST_ID, FIRST_ID + 1);
+    }
+
+    @Benchmark
+    public int getEmptySlots()
+    {
+        return InventoryAPI.getEmptySlots();
+    }
+
+    @Benchmark
+    public int resolveAction()
+    {
+        return ActionIndexCache.resolve(lastItem, "Eat");
+    }
+
+    @Benchmark
+    public int resolveFixedAction()
+    {
+        return ActionIndexCache.resolve(lastItem, "Drop");
+    }
+
+    /**
+     * one inventory change per call: a simulated tick applying it, then the snapshot rebuild
+     */
+    @Benchmark
+    public List<ItemEx> snapshotRebuild()
+    {
+        simulator.set(ITEMS + NOTES, LAST_ID, ++rebuilds);
+        simulator.tick();
+        return InventoryAPI.snapshot().getItems();
+    }
+}
@@ -1,8 +1,12 @@
 package com.tonic;
 
 import com.tonic.util.AudioDeviceChecker;
+import com.tonic.util.jvm.JvmOptions;
+import com.tonic.util.startup.Deferred;
+import com.tonic.util.startup.StartupProfiler;
 import com.tonic.util.optionsparser.OptionsParser;
 import com.tonic.util.optionsparser.annotations.CLIArgument;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -35,7 +39,7 @@ public class VitaLiteOptions extends OptionsParser
 
     @CLIArgument(
             name = "min",
-            description = "Run with minimum memory on jvm (auto enables also -noPlugins and -noMusic)"
+            description = "Run with minimum memory on jvm, sized to the host or container limits (auto enables also -noPlugins and -noMusic)"
     )
     private boolean min = false;
 
@@ -111,9 +115,168 @@ public class VitaLiteOptions extends OptionsParser
     )
     private String xmx = null;
 
+    @CLIArgument(
+            name = "Xss",
+            description = "JVM thread stack size (default 2m)"
+    )
+    private String xss = null;
+
+    @CLIArgument(
+            name = "metaspace",
+            description = "JVM max metaspace size, -XX:MaxMetaspaceSize (e.g., 128m)"
+    )
+    private String metaspace = null;
+
+    @CLIArgument(
+            name = "codeCache",
+            description = "JVM reserved code cache size, -XX:ReservedCodeCacheSize (e.g., 64m)"
+    )
+    private String codeCache = null;
+
+    @CLIArgument(
+            name = "gc",
+            description = "Force a garbage collector instead of the automatic choice (serial, parallel, g1, zgc, shenandoah)"
+    )
+    private String gc = null;
+
+    @CLIArgument(
+            name = "compilerThreads",
+            description = "JIT compiler thread count, -XX:CICompilerCount"
+    )
+    private Integer compilerThreads = null;
+
+    @CLIArgument(
+            name = "jvmArgs",
+            description = "Extra -XX: or -D flags for the client JVM, space separated (e.g., \"-XX:+UseNUMA -XX:MaxRAM=2g\")"
+    )
+    private String jvmArgs = null;
+
+    @CLIArgument(
+            name = "clients",
+            description = "Number of clients planned on this host, used to size heap and GC per client (default 1)"
+    )
+    private Integer clients = null;
+
+    @CLIArgument(
+            name = "fleet",
+            description = "Launch every client listed in a fleet file (one 'login=.. world=.. plugin=.. proxy=..' per line), splitting host RAM and CPUs between them"
+    )
+    private String fleet = null;
+
+    @CLIArgument(
+            name = "fleetStagger",
+            description = "Seconds to wait between fleet client starts (default 10)"
+    )
+    private Integer fleetStagger = null;
+
+    @CLIArgument(
+            name = "supervise",
+            description = "Capture child output into per-client logs, sample RSS/CPU/GC and auto-restart crashed, OOM, leaking or hung clients"
+    )
+    private boolean supervise = false;
+
+    @CLIArgument(
+            name = "warmPool",
+            description = "Keep this many idle pre-warmed client JVMs ready so restarts only pay for the login"
+    )
+    private Integer warmPool = null;
+
+    @CLIArgument(
+            name = "noCds",
+            description = "Disable the shared AppCDS class archive for child JVMs"
+    )
+    private boolean noCds = false;
+
+    @CLIArgument(
+            name = "dryRun",
+            description = "Print the child JVM command line chosen by the launcher without starting it"
+    )
+    private boolean dryRun = false;
+
+    @CLIArgument(
+            name = "profileStartup",
+            description = "Time each client startup phase and write a report to ~/.vitalite/startup"
+    )
+    private boolean profileStartup = false;
+
+    @CLIArgument(
+            name = "profileStartupJfr",
+            description = "Like profileStartup, and also record a JFR recording of startup"
+    )
+    private boolean profileStartupJfr = false;
+
+    @Getter(AccessLevel.NONE)
+    private JvmOptions jvmOptions;
+
+    @Getter(AccessLevel.NONE)
+    private volatile Deferred<Boolean> audioProbe;
+
+    /**
+     * Typed JVM options for the launcher, built and validated on first call
+     * @return JvmOptions
+     * @throws IllegalArgumentException if any JVM option is invalid
+     */
+    public JvmOptions getJvmOptions()
+    {
+        if(jvmOptions == null)
+        {
+            JvmOptions options = new JvmOptions()
+                    .set("Xms", xms)
+                    .set("Xmx", xmx)
+                    .set("Xss", xss)
+                    .set("metaspace", metaspace)
+                    .set("codeCache", codeCache)
+                    .set("gc", gc)
+                    .set("jvmArgs", jvmArgs)
+                    .set("fleet", fleet)
+                    .set("dryRun", String.valueOf(dryRun))
+                    .set("noCds", String.valueOf(noCds))
+                    .set("supervise", String.valueOf(supervise))
+                    .set("min", String.valueOf(min))
+                    .set("profileStartup", String.valueOf(profileStartup))
+                    .set("profileStartupJfr", String.valueOf(profileStartupJfr));
+            if(compilerThreads != null)
+                options.set("compilerThreads", String.valueOf(compilerThreads));
+            if(clients != null)
+                options.set("clients", String.valueOf(clients));
+            if(fleetStagger != null)
+                options.set("fleetStagger", String.valueOf(fleetStagger));
+            if(warmPool != null)
+                options.set("warmPool", String.valueOf(warmPool));
+            jvmOptions = options.validate();
+        }
+        return jvmOptions;
+    }
+
+    /**
+     * music is also off when the deferred audio probe finds no audio device
+     * @return true if music should not be loaded
+     */
+    public boolean isNoMusic()
+    {
+        Deferred<Boolean> probe = audioProbe;
+        if(!noMusic && probe != null && !probe.get())
+        {
+            noMusic = true;
+        }
+        return noMusic;
+    }
+
+    /**
+     * like {@link #_checkAudio()}, but probes for an audio device on the first {@link #isNoMusic()} call
+     * instead of during startup
+     */
+    public void _deferAudioCheck()
+    {
+        if(!noMusic)
+        {
+            audioProbe = Deferred.of(StartupProfiler.AUDIO_PROBE, AudioDeviceChecker::hasAudioDevice);
+        }
+    }
+
     public void _checkAudio()
     {
-        if(!AudioDeviceChecker.hasAudioDevice())
+        if(!StartupProfiler.time(StartupProfiler.AUDIO_PROBE, AudioDeviceChecker::hasAudioDevice))
         {
             noMusic = true;
         }
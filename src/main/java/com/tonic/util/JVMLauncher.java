@@ -1,180 +1,195 @@
 package com.tonic.util;
 
+import com.tonic.VitaLiteOptions;
+import com.tonic.util.jvm.CdsArchive;
+import com.tonic.util.jvm.FleetLauncher;
+import com.tonic.util.jvm.HostResources;
+import com.tonic.util.jvm.JvmOptions;
+import com.tonic.util.jvm.JvmProfile;
+import com.tonic.util.jvm.JvmProfileEngine;
+import com.tonic.util.jvm.WarmJvmPool;
+import com.tonic.util.startup.StartupProfiler;
+import com.tonic.util.supervisor.ClientSupervisor;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class JVMLauncher {
 
-    public static Process launchInNewJVM(String mainClass, String classpath, String[] programArgs) throws IOException {
-        List<String> command = new ArrayList<>();
+    private static final long POOL_WAIT_MILLIS = 2_000;
+    // one pool per distinct child command (main class, classpath, flags, size, output)
+    private static final Map<List<String>, WarmJvmPool> POOLS = new HashMap<>();
 
-        String javaHome = System.getProperty("java.home");
-        String javaBin = javaHome + File.separator + "bin" + File.separator + "java";
-        command.add(javaBin);
-        command.add("-XX:+DisableAttachMechanism");
-        command.add("-Drunelite.launcher.blacklistedDlls=RTSSHooks.dll,RTSSHooks64.dll,NahimicOSD.dll,NahimicMSIOSD.dll,Nahimic2OSD.dll,Nahimic2DevProps.dll,k_fps32.dll,k_fps64.dll,SS2DevProps.dll,SS2OSD.dll,GTIII-OSD64-GL.dll,GTIII-OSD64-VK.dll,GTIII-OSD64.dll");
+    /**
+     * Launch the client in a child JVM using the already parsed and validated options.
+     * Launcher-only arguments are removed from the child's program args.
+     * @return the child process (the first one for a fleet), or null in dry-run mode
+     */
+    public static Process launchInNewJVM(String mainClass, String classpath, VitaLiteOptions options, String[] programArgs) throws IOException {
+        return launchInNewJVM(mainClass, classpath, options.getJvmOptions(), JvmOptions.stripLauncherArgs(programArgs));
+    }
 
-        // Parse custom JVM args from programArgs and build filtered args list
-        String customXms = null;
-        String customXmx = null;
+    /**
+     * Launch the client in a child JVM, reading the JVM options from raw args.
+     * Prefer {@link #launchInNewJVM(String, String, VitaLiteOptions, String[])} when the options are already parsed.
+     * @return the child process (the first one for a fleet), or null in dry-run mode
+     */
+    public static Process launchInNewJVM(String mainClass, String classpath, String[] programArgs) throws IOException {
         List<String> filteredArgs = new ArrayList<>();
+        JvmOptions options = JvmOptions.fromArgs(programArgs, filteredArgs);
+        return launchInNewJVM(mainClass, classpath, options, filteredArgs);
+    }
 
-        for (int i = 0; i < programArgs.length; i++) {
-            String arg = programArgs[i];
-            boolean skipArg = false;
-
-            // Handle --Xms=VALUE or -Xms=VALUE
-            if (arg.startsWith("--Xms=") || arg.startsWith("-Xms=")) {
-                customXms = arg.split("=")[1];
-                skipArg = true;
-            }
-            // Handle --XmsVALUE or -XmsVALUE (e.g., --Xms2g)
-            else if (arg.startsWith("--Xms") && arg.length() > 5) {
-                customXms = arg.substring(5);
-                skipArg = true;
-            } else if (arg.startsWith("-Xms") && arg.length() > 4) {
-                customXms = arg.substring(4);
-                skipArg = true;
-            }
-            // Handle --Xms VALUE or -Xms VALUE (space-separated)
-            else if (arg.equals("--Xms") || arg.equals("-Xms")) {
-                if (i + 1 < programArgs.length) {
-                    customXms = programArgs[i + 1];
-                    i++; // Skip next arg (the value)
-                }
-                skipArg = true;
-            }
-
-            // Handle --Xmx=VALUE or -Xmx=VALUE
-            else if (arg.startsWith("--Xmx=") || arg.startsWith("-Xmx=")) {
-                customXmx = arg.split("=")[1];
-                skipArg = true;
-            }
-            // Handle --XmxVALUE or -XmxVALUE (e.g., --Xmx2g)
-            else if (arg.startsWith("--Xmx") && arg.length() > 5) {
-                customXmx = arg.substring(5);
-                skipArg = true;
-            } else if (arg.startsWith("-Xmx") && arg.length() > 4) {
-                customXmx = arg.substring(4);
-                skipArg = true;
-            }
-            // Handle --Xmx VALUE or -Xmx VALUE (space-separated)
-            else if (arg.equals("--Xmx") || arg.equals("-Xmx")) {
-                if (i + 1 < programArgs.length) {
-                    customXmx = programArgs[i + 1];
-                    i++; // Skip next arg (the value)
-                }
-                skipArg = true;
-            }
+    /**
+     * Launch the client in a child JVM with heap and GC flags picked by {@link JvmProfileEngine}.
+     * With dryRun the command line is printed instead and nothing is started.
+     * With a fleet file every client in the file is launched through {@link FleetLauncher}.
+     * @param options validated JVM options
+     * @param programArgs program args for the client, without launcher options
+     * @return the child process (the first one for a fleet), or null in dry-run mode
+     */
+    public static Process launchInNewJVM(String mainClass, String classpath, JvmOptions options, List<String> programArgs) throws IOException {
+        long launchedAt = System.currentTimeMillis();
+        HostResources host = HostResources.detect();
+
+        if (options.getFleet() != null) {
+            List<Process> fleet = new FleetLauncher(host, FleetLauncher.readSpecs(Paths.get(options.getFleet())))
+                    .stagger(options.getFleetStaggerMillis())
+                    .dryRun(options.isDryRun())
+                    .cds(options.isCds())
+                    .supervise(options.isSupervise())
+                    .launch(mainClass, classpath, options, programArgs);
+            return fleet.isEmpty() ? null : fleet.get(0);
+        }
 
-            // Only add non-JVM args to filtered list
-            if (!skipArg) {
-                filteredArgs.add(arg);
-            }
+        // Pick heap and GC from the requested sizes and what the host (or its cgroup) can give each client
+        JvmProfileEngine engine = new JvmProfileEngine(host, options.getClients());
+        JvmProfile profile = options.isMin()
+                ? engine.selectMinimal(options.getXms(), options.getXmx(), options.getGc())
+                : engine.select(options.getXms(), options.getXmx(), options.getGc());
+        List<String> jvmFlags = new ArrayList<>(profile.getFlags());
+        jvmFlags.addAll(options.toJvmFlags());
+        if (options.isSupervise()) {
+            jvmFlags.addAll(ClientSupervisor.JVM_FLAGS);
+        }
+        // per-launch properties stay out of the pool flags, a pooled JVM gets them with its claim
+        Map<String, String> launchProperties = new HashMap<>();
+        if (options.isProfileStartup() || options.isProfileStartupJfr()) {
+            jvmFlags.addAll(StartupProfiler.jvmFlags(options.isProfileStartupJfr()));
+            launchProperties.put(StartupProfiler.LAUNCHED_AT_PROPERTY, Long.toString(launchedAt));
         }
 
-        // Apply JVM settings with automatic GC optimization
-        if (customXms != null) {
-            command.add("-Xms" + customXms);
-        } else if (customXmx != null && isLargeHeap(customXmx)) {
-            // Auto-set Xms to half of Xmx for large heaps (reduces early GC)
-            command.add("-Xms" + getHalfHeap(customXmx));
+        // Share class metadata through an AppCDS archive of the client classpath, trained in the background when missing
+        CdsArchive cds = options.isCds() ? CdsArchive.forClasspath(resolveClasspath(classpath)) : null;
+        if (cds != null && !options.isDryRun()) {
+            cds.train();
         }
 
-        if (customXmx != null) {
-            command.add("-Xmx" + customXmx);
-            // Auto-apply optimal GC based on heap size
-            if (isLargeHeap(customXmx)) {
-                // >1GB: Use G1GC with optimized settings
-                command.add("-XX:+UseG1GC");
-                command.add("-XX:MaxGCPauseMillis=50");
-                command.add("-XX:G1HeapRegionSize=16M");
-            } else {
-                // <=1GB: Use SerialGC (low resource mode)
-                command.add("-XX:+UseSerialGC");
+        if (options.getWarmPool() > 0 && !options.isDryRun()) {
+            WarmJvmPool warm = pool(mainClass, classpath, jvmFlags, cds, options.getWarmPool(), options.isSupervise());
+            if (options.isSupervise()) {
+                // restarts claim from the pool too
+                return ClientSupervisor.get().start(mainClass, warm.command(programArgs, launchProperties),
+                        () -> warm.claim(programArgs, launchProperties, POOL_WAIT_MILLIS)).getProcess();
             }
-        } else {
-            // Default: 768MB max, SerialGC (low resource mode)
-            command.add("-Xmx768m");
-            command.add("-XX:+UseSerialGC");
+            return warm.claim(programArgs, launchProperties, POOL_WAIT_MILLIS);
         }
 
-        command.add("-Xss2m");
-        command.add("-XX:CompileThreshold=1500");
-        command.add("-XX:+UseStringDeduplication");
-
-        if (classpath != null && !classpath.isEmpty()) {
-            command.add("-cp");
-            command.add(classpath);
-        } else {
-            command.add("-cp");
-            command.add(System.getProperty("java.class.path"));
+        for (Map.Entry<String, String> property : launchProperties.entrySet()) {
+            jvmFlags.add("-D" + property.getKey() + "=" + property.getValue());
         }
 
-        command.add(mainClass);
+        List<String> cdsFlags = cds != null ? cds.jvmFlags() : new ArrayList<>();
+        jvmFlags.addAll(cdsFlags);
 
-        // Add only non-JVM program args (JVM args already applied above)
-        command.addAll(filteredArgs);
+        List<String> command = buildCommand(mainClass, classpath, jvmFlags, programArgs);
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.inheritIO();
+        if (options.isDryRun()) {
+            System.out.println("[JVMLauncher] host: " + host + ", clients: " + options.getClients() + ", profile: " + profile.getGc());
+            System.out.println("[JVMLauncher] " + String.join(" ", command));
+            return null;
+        }
 
-        return pb.start();
+        Process process;
+        if (options.isSupervise()) {
+            process = ClientSupervisor.get().start(mainClass, command).getProcess();
+        } else {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.inheritIO();
+            process = pb.start();
+        }
+        return process;
     }
 
     /**
-     * Check if heap size is > 1GB (use G1GC for large heaps)
+     * Get the pool of pre-warmed JVMs for a child command, creating it on first use.
+     * Pooled JVMs map the CDS archive once its training run has produced it.
+     * Supervised pools pipe their children's output to the supervisor.
      */
-    private static boolean isLargeHeap(String heapSize) {
-        if (heapSize == null) return false;
-        heapSize = heapSize.toLowerCase();
-
-        if (heapSize.endsWith("g")) {
-            return true; // Any value in GB is large
+    private static synchronized WarmJvmPool pool(String mainClass, String classpath, List<String> jvmFlags, CdsArchive cds, int size, boolean supervised) throws IOException {
+        List<String> poolFlags = new ArrayList<>(jvmFlags);
+        if (cds != null && cds.exists()) {
+            poolFlags.addAll(cds.jvmFlags());
         }
-
-        if (heapSize.endsWith("m")) {
-            try {
-                int mb = Integer.parseInt(heapSize.replace("m", ""));
-                return mb > 1024; // > 1GB
-            } catch (NumberFormatException e) {
-                return false;
-            }
+        List<String> key = new ArrayList<>();
+        key.add(mainClass);
+        key.add(resolveClasspath(classpath));
+        key.add(Integer.toString(size));
+        key.add(Boolean.toString(supervised));
+        key.addAll(poolFlags);
+        WarmJvmPool pool = POOLS.get(key);
+        if (pool == null) {
+            WarmJvmPool created = new WarmJvmPool(mainClass, classpath, poolFlags, size, 0, supervised);
+            Runtime.getRuntime().addShutdownHook(new Thread(created::close));
+            POOLS.put(key, created);
+            pool = created;
         }
-
-        return false;
+        return pool;
     }
 
     /**
-     * Get half of heap size for initial heap (prevents early GC thrashing)
+     * Build the full child JVM command line. The given flags come after the defaults so they override them.
+     * @param mainClass client main class
+     * @param classpath classpath, null or empty for the launcher's own
+     * @param jvmFlags heap, GC and tuning flags
+     * @param programArgs program args for the client
+     * @return command
      */
-    private static String getHalfHeap(String heapSize) {
-        if (heapSize == null) return "512m";
-        heapSize = heapSize.toLowerCase();
-
-        if (heapSize.endsWith("g")) {
-            try {
-                int gb = Integer.parseInt(heapSize.replace("g", ""));
-                int halfGb = gb / 2;
-                return halfGb > 0 ? halfGb + "g" : "512m";
-            } catch (NumberFormatException e) {
-                return "512m";
-            }
-        }
+    public static List<String> buildCommand(String mainClass, String classpath, List<String> jvmFlags, List<String> programArgs) {
+        List<String> command = new ArrayList<>();
 
-        if (heapSize.endsWith("m")) {
-            try {
-                int mb = Integer.parseInt(heapSize.replace("m", ""));
-                int halfMb = mb / 2;
-                return halfMb + "m";
-            } catch (NumberFormatException e) {
-                return "512m";
-            }
-        }
+        String javaHome = System.getProperty("java.home");
+        String javaBin = javaHome + File.separator + "bin" + File.separator + "java";
+        command.add(javaBin);
+        command.add("-XX:+DisableAttachMechanism");
+        command.add("-Drunelite.launcher.blacklistedDlls=RTSSHooks.dll,RTSSHooks64.dll,NahimicOSD.dll,NahimicMSIOSD.dll,Nahimic2OSD.dll,Nahimic2DevProps.dll,k_fps32.dll,k_fps64.dll,SS2DevProps.dll,SS2OSD.dll,GTIII-OSD64-GL.dll,GTIII-OSD64-VK.dll,GTIII-OSD64.dll");
+        command.add("-XX:CompileThreshold=1500");
+        command.add("-XX:+UseStringDeduplication");
+        command.addAll(jvmFlags);
+
+        command.add("-cp");
+        command.add(resolveClasspath(classpath));
+
+        command.add(mainClass);
+
+        // Add only non-JVM program args (JVM args already applied above)
+        command.addAll(programArgs);
+        return command;
+    }
 
-        return "512m";
+    /**
+     * @param classpath requested classpath
+     * @return the classpath, or the launcher's own when none was given
+     */
+    public static String resolveClasspath(String classpath) {
+        if (classpath != null && !classpath.isEmpty()) {
+            return classpath;
+        }
+        return System.getProperty("java.class.path");
     }
-}
\ No newline at end of file
+}
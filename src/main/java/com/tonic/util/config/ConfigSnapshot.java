@@ -0,0 +1,423 @@
+package com.tonic.util.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only view of a RuneLite profile config (group.key=value properties), backed by a compact
+ * binary snapshot that is memory-mapped instead of parsed.
+ * <p>
+ * The snapshot keeps the size and a content hash of the text config bytes it was built from, so even
+ * a same-size rewrite within the mtime granularity is noticed. When they still match, {@link #load(Path)}
+ * maps it and looks keys up by binary search over the mapped index, only decoding the values asked for.
+ * Every client of a fleet shares the same page cache pages. When the snapshot is missing or stale the
+ * text config is parsed instead, and one client (the one that takes the lock) writes a fresh snapshot
+ * for the others. Call {@link #save(Path, Map)} after the text config is written to keep the snapshot
+ * current.
+ * <p>
+ * Layout, big endian: magic, version, source size, source hash, entry count, then per entry
+ * key offset, key length, value offset, value length into the UTF-8 data that follows. Entries are
+ * sorted by key bytes, so a config group is one contiguous range.
+ */
+public final class ConfigSnapshot
+{
+    private static final Path DIRECTORY = Paths.get(System.getProperty("user.home"), ".vitalite", "config");
+    private static final int MAGIC = 0x564C4346; // VLCF
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final int ENTRY_BYTES = 16;
+    private static final long STALE_LOCK_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int dataStart;
+    private final NavigableMap<String, String> text;
+
+    private ConfigSnapshot(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.count = buffer.getInt(HEADER_BYTES - 4);
+        this.dataStart = HEADER_BYTES + count * ENTRY_BYTES;
+        this.text = null;
+    }
+
+    private ConfigSnapshot(NavigableMap<String, String> text)
+    {
+        this.buffer = null;
+        this.count = text.size();
+        this.dataStart = 0;
+        this.text = text;
+    }
+
+    /**
+     * map the snapshot of a profile config, falling back to parsing the text config
+     * @param source the profile's .properties file
+     * @return ConfigSnapshot, empty if the config does not exist
+     * @throws IOException if the text config cannot be read
+     */
+    public static ConfigSnapshot load(Path source) throws IOException
+    {
+        if(!Files.isRegularFile(source))
+            return new ConfigSnapshot(new TreeMap<>());
+
+        Path snapshot = snapshotPath(source);
+        // the stamp and the entries come from the same bytes, so a concurrent rewrite of the
+        // config can never be stamped onto the entries of the previous one
+        byte[] bytes = Files.readAllBytes(source);
+        long hash = hash(bytes);
+        ConfigSnapshot mapped = map(snapshot, bytes.length, hash);
+        if(mapped != null)
+            return mapped;
+
+        NavigableMap<String, String> entries = parse(bytes);
+
+        // only one client of a fleet rebuilds the snapshot, the rest just use the parsed text
+        Path lock = snapshot.resolveSibling(snapshot.getFileName() + ".lock");
+        if(tryLock(lock))
+        {
+            try
+            {
+                write(snapshot, entries, bytes.length, hash);
+            }
+            finally
+            {
+                Files.deleteIfExists(lock);
+            }
+        }
+        return new ConfigSnapshot(entries);
+    }
+
+    /**
+     * write the snapshot for a config that was just saved. Skipped if the file no longer holds
+     * these entries, so a snapshot is only ever stamped with the bytes it was built from.
+     * @param source the profile's .properties file, already written
+     * @param entries every config entry
+     */
+    public static void save(Path source, Map<String, String> entries)
+    {
+        Path snapshot = snapshotPath(source);
+        try
+        {
+            byte[] bytes = Files.readAllBytes(source);
+            // rewritten again since, e.g. by another client; the next load rebuilds from the text
+            if(!parse(bytes).equals(entries))
+                return;
+            write(snapshot, entries, bytes.length, hash(bytes));
+        }
+        catch (IOException e)
+        {
+            System.err.println("[ConfigSnapshot] could not read " + source + ": " + e.getMessage());
+        }
+    }
+
+    private static void write(Path snapshot, Map<String, String> entries, long sourceSize, long sourceHash)
+    {
+        try
+        {
+            Files.createDirectories(DIRECTORY);
+            ByteBuffer data = encode(entries, sourceSize, sourceHash);
+            Path temp = Files.createTempFile(DIRECTORY, snapshot.getFileName().toString(), ".tmp");
+            try
+            {
+                try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+                {
+                    while(data.hasRemaining())
+                    {
+                        channel.write(data);
+                    }
+                }
+                try
+                {
+                    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            finally
+            {
+                Files.deleteIfExists(temp);
+            }
+        }
+        catch (IOException e)
+        {
+            // e.g. Windows refuses to replace a file another client has mapped, the text config still works
+            System.err.println("[ConfigSnapshot] could not write " + snapshot + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param key full key, group.key
+     * @return value, or null if not set
+     */
+    public String get(String key)
+    {
+        if(text != null)
+            return text.get(key);
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int index = lowerBound(bytes);
+        if(index < count && compareKey(index, bytes) == 0)
+            return string(entryInt(index, 8), entryInt(index, 12));
+        return null;
+    }
+
+    /**
+     * @param group config group
+     * @return every key of the group without the group prefix, in key order
+     */
+    public Map<String, String> getGroup(String group)
+    {
+        String prefix = group + ".";
+        Map<String, String> values = new LinkedHashMap<>();
+        if(text != null)
+        {
+            for(Map.Entry<String, String> entry : text.tailMap(prefix, true).entrySet())
+            {
+                if(!entry.getKey().startsWith(prefix))
+                    break;
+                values.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+            return values;
+        }
+
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        for(int i = lowerBound(prefixBytes); i < count && keyStartsWith(i, prefixBytes); i++)
+        {
+            String key = string(entryInt(i, 0), entryInt(i, 4));
+            values.put(key.substring(prefix.length()), string(entryInt(i, 8), entryInt(i, 12)));
+        }
+        return values;
+    }
+
+    /**
+     * @return every key, in key order
+     */
+    public List<String> keys()
+    {
+        if(text != null)
+            return Collections.unmodifiableList(new ArrayList<>(text.keySet()));
+        List<String> keys = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+        {
+            keys.add(string(entryInt(i, 0), entryInt(i, 4)));
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return true if backed by the mapped snapshot, false if the text config was parsed
+     */
+    public boolean isMapped()
+    {
+        return buffer != null;
+    }
+
+    static Path snapshotPath(Path source)
+    {
+        String name = source.getFileName().toString();
+        if(name.endsWith(".properties"))
+            name = name.substring(0, name.length() - ".properties".length());
+        return DIRECTORY.resolve(name + ".snap");
+    }
+
+    private static NavigableMap<String, String> parse(byte[] bytes) throws IOException
+    {
+        Properties properties = new Properties();
+        try(Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.ISO_8859_1))
+        {
+            properties.load(reader);
+        }
+        NavigableMap<String, String> entries = new TreeMap<>();
+        for(String key : properties.stringPropertyNames())
+        {
+            entries.put(key, properties.getProperty(key));
+        }
+        return entries;
+    }
+
+    /**
+     * @return first 8 bytes of the SHA-256 of the config text
+     */
+    private static long hash(byte[] bytes)
+    {
+        try
+        {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(bytes)).getLong();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e); // every JDK ships SHA-256
+        }
+    }
+
+    private static ConfigSnapshot map(Path snapshot, long sourceSize, long sourceHash)
+    {
+        if(!Files.isRegularFile(snapshot))
+            return null;
+        try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ))
+        {
+            if(channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getLong(8) != sourceSize || buffer.getLong(16) != sourceHash)
+                return null;
+            int count = buffer.getInt(24);
+            if(count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES > buffer.capacity())
+                return null;
+            return new ConfigSnapshot(buffer);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static ByteBuffer encode(Map<String, String> entries, long sourceSize, long sourceHash)
+    {
+        List<byte[][]> sorted = new ArrayList<>(entries.size());
+        int dataBytes = 0;
+        for(Map.Entry<String, String> entry : entries.entrySet())
+        {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            sorted.add(new byte[][]{key, value});
+            dataBytes += key.length + value.length;
+        }
+        sorted.sort((a, b) -> compare(a[0], b[0]));
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + sorted.size() * ENTRY_BYTES + dataBytes);
+        out.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceHash).putInt(sorted.size());
+        int offset = 0;
+        for(byte[][] entry : sorted)
+        {
+            out.putInt(offset).putInt(entry[0].length);
+            offset += entry[0].length;
+            out.putInt(offset).putInt(entry[1].length);
+            offset += entry[1].length;
+        }
+        for(byte[][] entry : sorted)
+        {
+            out.put(entry[0]).put(entry[1]);
+        }
+        out.flip();
+        return out;
+    }
+
+    private static boolean tryLock(Path lock)
+    {
+        try
+        {
+            Files.createDirectories(lock.getParent());
+            if(Files.exists(lock) && System.currentTimeMillis() - Files.getLastModifiedTime(lock).toMillis() > STALE_LOCK_MILLIS)
+                Files.deleteIfExists(lock);
+            Files.createFile(lock);
+            return true;
+        }
+        catch (IOException e)
+        {
+            // FileAlreadyExistsException: another client is writing the snapshot
+            return false;
+        }
+    }
+
+    private int entryInt(int index, int field)
+    {
+        return buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + field);
+    }
+
+    private String string(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataStart + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return index of the first key not below the given bytes
+     */
+    private int lowerBound(byte[] key)
+    {
+        int low = 0;
+        int high = count;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(compareKey(mid, key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private int compareKey(int index, byte[] key)
+    {
+        int start = dataStart + entryInt(index, 0);
+        int length = entryInt(index, 4);
+        int shared = Math.min(length, key.length);
+        for(int i = 0; i < shared; i++)
+        {
+            int diff = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if(diff != 0)
+                return diff;
+        }
+        return length - key.length;
+    }
+
+    private boolean keyStartsWith(int index, byte[] prefix)
+    {
+        int start = dataStart + entryInt(index, 0);
+        if(entryInt(index, 4) < prefix.length)
+            return false;
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(buffer.get(start + i) != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int compare(byte[] a, byte[] b)
+    {
+        int shared = Math.min(a.length, b.length);
+        for(int i = 0; i < shared; i++)
+        {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if(diff != 0)
+                return diff;
+        }
+        return a.length - b.length;
+    }
+}
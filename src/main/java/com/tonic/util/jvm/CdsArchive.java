@@ -0,0 +1,381 @@
+package com.tonic.util.jvm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dynamic AppCDS archive for the client classpath.
+ * <p>
+ * The archive is named after a fingerprint of the JVM build and the SHA-256 of every jar on
+ * the classpath, so any jar or JDK update produces a new archive. When it is missing, one
+ * launcher (the one that takes the lock) starts a short {@link CdsTraining} run that loads the
+ * client classes and exits cleanly, dumping the archive; real clients never dump it, so killed
+ * or restarted clients cannot leave the fleet without one. Children launched once it exists map
+ * it read-only with -XX:SharedArchiveFile, skipping class parsing/verification and sharing the
+ * class metadata pages between processes. Jar hashes are cached by path, size and mtime in an
+ * index next to the archives so a launch only re-hashes jars that changed; the index and
+ * archives of fingerprints unused for two weeks are pruned.
+ */
+public class CdsArchive
+{
+    private static final Path DIRECTORY = Paths.get(System.getProperty("user.home"), ".vitalite", "cds");
+    private static final Path HASH_INDEX = DIRECTORY.resolve("jars.idx");
+    // a lock without a live owner pid (the launcher died before writing it)
+    private static final long STALE_LOCK_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // a failed training run is not retried before this
+    private static final long RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int PRUNE_AFTER_DAYS = 14;
+
+    private final String classpath;
+    private final String fingerprint;
+    private final Path archive;
+    private final Path lock;
+    private final Path failed;
+    private final Path log;
+
+    private CdsArchive(String classpath, String fingerprint)
+    {
+        this.classpath = classpath;
+        this.fingerprint = fingerprint;
+        this.archive = DIRECTORY.resolve(fingerprint + ".jsa");
+        this.lock = DIRECTORY.resolve(fingerprint + ".lock");
+        this.failed = DIRECTORY.resolve(fingerprint + ".failed");
+        this.log = DIRECTORY.resolve(fingerprint + ".log");
+    }
+
+    /**
+     * @param classpath resolved classpath
+     * @return archive for the classpath, or null if CDS cannot be used on this JVM
+     */
+    public static CdsArchive forClasspath(String classpath)
+    {
+        // dynamic archiving needs JDK 13+
+        if(Runtime.version().feature() < 13)
+            return null;
+        try
+        {
+            Files.createDirectories(DIRECTORY);
+            CdsArchive cds = new CdsArchive(classpath, fingerprint(classpath));
+            cds.prune();
+            return cds;
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            System.err.println("[CdsArchive] disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true once the archive has been dumped
+     */
+    public boolean exists()
+    {
+        return Files.isRegularFile(archive) && !Files.exists(lock);
+    }
+
+    /**
+     * flags for the next child
+     * @return flags mapping the archive, empty while it does not exist yet
+     */
+    public List<String> jvmFlags()
+    {
+        List<String> flags = new ArrayList<>();
+        if(exists())
+        {
+            touch(archive);
+            flags.add("-XX:SharedArchiveFile=" + archive);
+            flags.add("-Xshare:auto");
+        }
+        return flags;
+    }
+
+    /**
+     * start the training run dumping the archive in the background, unless the archive exists,
+     * another launcher is already training it, or a training run failed recently
+     * @return the training process, or null if none was started
+     */
+    public Process train()
+    {
+        if(exists() || recentlyFailed() || !tryLock())
+            return null;
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:ArchiveClassesAtExit=" + archive);
+        command.add("-Xshare:auto");
+        command.add("-cp");
+        command.add(classpath);
+        command.add(CdsTraining.class.getName());
+        try
+        {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            Files.write(lock, Long.toString(process.pid()).getBytes(StandardCharsets.UTF_8));
+            process.onExit().thenAccept(this::trained);
+            System.out.println("[CdsArchive] training " + archive.getFileName() + " (pid " + process.pid() + ")");
+            return process;
+        }
+        catch (IOException e)
+        {
+            System.err.println("[CdsArchive] training failed to start: " + e.getMessage());
+            markFailed();
+            release();
+            return null;
+        }
+    }
+
+    private void trained(Process process)
+    {
+        if(process.exitValue() != 0 || !Files.isRegularFile(archive))
+        {
+            System.err.println("[CdsArchive] training exited with " + process.exitValue() + ", see " + log);
+            try
+            {
+                Files.deleteIfExists(archive);
+            }
+            catch (IOException ignored)
+            {
+            }
+            markFailed();
+        }
+        release();
+    }
+
+    private void release()
+    {
+        try
+        {
+            Files.deleteIfExists(lock);
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    public Path getPath()
+    {
+        return archive;
+    }
+
+    private boolean tryLock()
+    {
+        try
+        {
+            if(Files.exists(lock) && isStale())
+            {
+                // the training run died, or its launcher did before recording it
+                Files.deleteIfExists(lock);
+                Files.deleteIfExists(archive);
+            }
+            Files.createFile(lock);
+            return true;
+        }
+        catch (IOException e)
+        {
+            // FileAlreadyExistsException: another launcher holds the lock
+            return false;
+        }
+    }
+
+    private boolean isStale() throws IOException
+    {
+        String owner = new String(Files.readAllBytes(lock), StandardCharsets.UTF_8).trim();
+        if(!owner.isEmpty())
+        {
+            try
+            {
+                Optional<ProcessHandle> handle = ProcessHandle.of(Long.parseLong(owner));
+                return !handle.isPresent() || !handle.get().isAlive();
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+        }
+        return System.currentTimeMillis() - Files.getLastModifiedTime(lock).toMillis() > STALE_LOCK_MILLIS;
+    }
+
+    private boolean recentlyFailed()
+    {
+        try
+        {
+            return Files.exists(failed) && System.currentTimeMillis() - Files.getLastModifiedTime(failed).toMillis() < RETRY_MILLIS;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private void markFailed()
+    {
+        try
+        {
+            Files.write(failed, new byte[0]);
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    /**
+     * delete the files of other fingerprints unused for PRUNE_AFTER_DAYS days (archives are touched on use)
+     */
+    private void prune()
+    {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(PRUNE_AFTER_DAYS);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY))
+        {
+            for(Path file : files)
+            {
+                String name = file.getFileName().toString();
+                if(name.startsWith(fingerprint) || file.equals(HASH_INDEX))
+                    continue;
+                if(Files.getLastModifiedTime(file).toMillis() < cutoff)
+                    Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("[CdsArchive] prune failed: " + e.getMessage());
+        }
+    }
+
+    private static void touch(Path file)
+    {
+        try
+        {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    private static String fingerprint(String classpath) throws IOException, NoSuchAlgorithmException
+    {
+        Map<String, String> index = readIndex();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(System.getProperty("java.vm.version", "").getBytes(StandardCharsets.UTF_8));
+        digest.update(System.getProperty("java.home", "").getBytes(StandardCharsets.UTF_8));
+
+        // entries for jars that were replaced or removed
+        boolean changed = pruneIndex(index);
+        for(String entry : classpath.split(File.pathSeparator))
+        {
+            Path path = Paths.get(entry).toAbsolutePath();
+            digest.update(path.toString().getBytes(StandardCharsets.UTF_8));
+            if(!Files.isRegularFile(path))
+                continue;
+
+            String key = path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+            String hash = index.get(key);
+            if(hash == null)
+            {
+                hash = sha256(path);
+                index.put(key, hash);
+                changed = true;
+            }
+            digest.update(hash.getBytes(StandardCharsets.UTF_8));
+        }
+
+        if(changed)
+            writeIndex(index);
+        return hex(digest.digest()).substring(0, 32);
+    }
+
+    private static boolean pruneIndex(Map<String, String> index) throws IOException
+    {
+        boolean pruned = false;
+        Iterator<String> keys = index.keySet().iterator();
+        while(keys.hasNext())
+        {
+            String key = keys.next();
+            int mtimeSplit = key.lastIndexOf('|');
+            int sizeSplit = mtimeSplit > 0 ? key.lastIndexOf('|', mtimeSplit - 1) : -1;
+            boolean current = false;
+            if(sizeSplit > 0)
+            {
+                Path path = Paths.get(key.substring(0, sizeSplit));
+                current = Files.isRegularFile(path)
+                        && key.substring(sizeSplit + 1, mtimeSplit).equals(Long.toString(Files.size(path)))
+                        && key.substring(mtimeSplit + 1).equals(Long.toString(Files.getLastModifiedTime(path).toMillis()));
+            }
+            if(!current)
+            {
+                keys.remove();
+                pruned = true;
+            }
+        }
+        return pruned;
+    }
+
+    private static String sha256(Path file) throws IOException, NoSuchAlgorithmException
+    {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file))
+        {
+            int read;
+            while((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static Map<String, String> readIndex() throws IOException
+    {
+        Map<String, String> index = new HashMap<>();
+        if(!Files.isRegularFile(HASH_INDEX))
+            return index;
+        for(String line : Files.readAllLines(HASH_INDEX, StandardCharsets.UTF_8))
+        {
+            int split = line.lastIndexOf('=');
+            if(split > 0)
+                index.put(line.substring(0, split), line.substring(split + 1));
+        }
+        return index;
+    }
+
+    private static void writeIndex(Map<String, String> index) throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        for(Map.Entry<String, String> entry : index.entrySet())
+        {
+            lines.add(entry.getKey() + "=" + entry.getValue());
+        }
+        Path temp = Files.createTempFile(DIRECTORY, "jars", ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, HASH_INDEX, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String hex(byte[] bytes)
+    {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.tonic.util.jvm;
+
+/**
+ * Entry point of the short training run started by {@link CdsArchive#train()}.
+ * <p>
+ * Loads the classes of the client classpath, as a pooled JVM does, and exits cleanly so the
+ * JVM dumps them with -XX:ArchiveClassesAtExit.
+ */
+public class CdsTraining
+{
+    public static void main(String[] args)
+    {
+        String prefixes = System.getProperty(WarmStart.PRELOAD_PROPERTY, WarmStart.DEFAULT_PRELOAD);
+        WarmStart.preload(CdsTraining.class.getClassLoader(), prefixes.split(","));
+        System.exit(0);
+    }
+}
@@ -0,0 +1,184 @@
+package com.tonic.util.jvm;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Memory and CPU limits of the cgroup the launcher runs in, for both cgroup v1 and v2.
+ * Limits inherited from parent cgroups are honoured by walking up to the hierarchy root.
+ * A value of -1 means unlimited or not running under cgroups (e.g. Windows, macOS).
+ */
+@Getter
+public final class CgroupLimits
+{
+    private static final Path ROOT = Paths.get("/sys/fs/cgroup");
+    // cgroup v1 reports "unlimited" as a page-aligned Long.MAX_VALUE
+    private static final long V1_UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final long memoryBytes;
+    private final double cpus;
+
+    private CgroupLimits(long memoryBytes, double cpus)
+    {
+        this.memoryBytes = memoryBytes;
+        this.cpus = cpus;
+    }
+
+    /**
+     * @return limits of the current process, unlimited when they cannot be read
+     */
+    public static CgroupLimits detect()
+    {
+        try
+        {
+            Path self = Paths.get("/proc/self/cgroup");
+            if(!Files.isReadable(self))
+                return new CgroupLimits(-1, -1);
+            List<String> lines = Files.readAllLines(self, StandardCharsets.US_ASCII);
+            if(Files.exists(ROOT.resolve("cgroup.controllers")))
+                return detectV2(lines);
+            return detectV1(lines);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            return new CgroupLimits(-1, -1);
+        }
+    }
+
+    /**
+     * @return true if a memory or CPU limit applies
+     */
+    public boolean isLimited()
+    {
+        return memoryBytes > 0 || cpus > 0;
+    }
+
+    private static CgroupLimits detectV2(List<String> lines)
+    {
+        // unified hierarchy: a single "0::/path" line
+        String path = "/";
+        for(String line : lines)
+        {
+            if(line.startsWith("0::"))
+                path = line.substring(3);
+        }
+
+        long memory = -1;
+        double cpus = -1;
+        for(Path dir = under(ROOT, path); dir != null && dir.startsWith(ROOT); dir = dir.getParent())
+        {
+            long max = parseLimit(read(dir.resolve("memory.max")));
+            if(max > 0)
+                memory = memory > 0 ? Math.min(memory, max) : max;
+
+            // "quota period" or "max period"
+            String cpu = read(dir.resolve("cpu.max"));
+            if(cpu != null)
+            {
+                String[] parts = cpu.trim().split("\\s+");
+                long quota = parseLimit(parts[0]);
+                long period = parts.length > 1 ? parseLimit(parts[1]) : 100_000;
+                if(quota > 0 && period > 0)
+                    cpus = cpus > 0 ? Math.min(cpus, (double) quota / period) : (double) quota / period;
+            }
+        }
+        return new CgroupLimits(memory, cpus);
+    }
+
+    private static CgroupLimits detectV1(List<String> lines)
+    {
+        // one "id:controllers:/path" line per hierarchy
+        String memoryPath = "/";
+        String cpuPath = "/";
+        for(String line : lines)
+        {
+            String[] parts = line.split(":", 3);
+            if(parts.length < 3)
+                continue;
+            for(String controller : parts[1].split(","))
+            {
+                if(controller.equals("memory"))
+                    memoryPath = parts[2];
+                else if(controller.equals("cpu"))
+                    cpuPath = parts[2];
+            }
+        }
+
+        long memory = -1;
+        Path memoryRoot = ROOT.resolve("memory");
+        for(Path dir = mountedPath(memoryRoot, memoryPath); dir != null && dir.startsWith(memoryRoot); dir = dir.getParent())
+        {
+            long limit = parseLimit(read(dir.resolve("memory.limit_in_bytes")));
+            if(limit > 0 && limit < V1_UNLIMITED)
+                memory = memory > 0 ? Math.min(memory, limit) : limit;
+        }
+
+        double cpus = -1;
+        Path cpuRoot = ROOT.resolve("cpu");
+        for(Path dir = mountedPath(cpuRoot, cpuPath); dir != null && dir.startsWith(cpuRoot); dir = dir.getParent())
+        {
+            long quota = parseLimit(read(dir.resolve("cpu.cfs_quota_us")));
+            long period = parseLimit(read(dir.resolve("cpu.cfs_period_us")));
+            if(quota > 0 && period > 0)
+                cpus = cpus > 0 ? Math.min(cpus, (double) quota / period) : (double) quota / period;
+        }
+        return new CgroupLimits(memory, cpus);
+    }
+
+    /**
+     * inside a container the process's cgroup is usually mounted as the root,
+     * so fall back to the root when the full path does not exist
+     */
+    private static Path mountedPath(Path root, String path)
+    {
+        Path full = under(root, path);
+        return Files.isDirectory(full) ? full : root;
+    }
+
+    private static Path under(Path root, String path)
+    {
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        return relative.isEmpty() ? root : root.resolve(relative);
+    }
+
+    private static String read(Path file)
+    {
+        try
+        {
+            return Files.isReadable(file) ? new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim() : null;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static long parseLimit(String value)
+    {
+        if(value == null || value.isEmpty() || value.equals("max"))
+            return -1;
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        if(!isLimited())
+            return "unlimited";
+        return (memoryBytes > 0 ? MemorySize.ofBytes(memoryBytes).toString() : "unlimited") + " RAM, "
+                + (cpus > 0 ? String.format("%.2f", cpus) : "unlimited") + " cpus";
+    }
+}
@@ -0,0 +1,106 @@
+package com.tonic.util.jvm;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One client of a fleet: the same login, world, plugin and proxy fields as VitaLiteOptions.
+ * Written one per line as whitespace separated key=value pairs, e.g.
+ * {@code login=user:pass world=302 plugin=FlawlessMiner proxy=1.2.3.4:1080}.
+ */
+@Getter
+public class ClientSpec
+{
+    private final String login;
+    private final Integer world;
+    private final String plugin;
+    private final String proxy;
+
+    public ClientSpec(String login, Integer world, String plugin, String proxy)
+    {
+        this.login = login;
+        this.world = world;
+        this.plugin = plugin;
+        this.proxy = proxy;
+    }
+
+    /**
+     * parse a spec line
+     * @param line key=value pairs
+     * @return ClientSpec
+     * @throws IllegalArgumentException on unknown keys or a malformed world
+     */
+    public static ClientSpec parse(String line)
+    {
+        String login = null;
+        Integer world = null;
+        String plugin = null;
+        String proxy = null;
+        for(String token : line.trim().split("\\s+"))
+        {
+            int eq = token.indexOf('=');
+            if(eq <= 0)
+                throw new IllegalArgumentException("Expected key=value in fleet spec: " + token);
+            String key = token.substring(0, eq);
+            String value = token.substring(eq + 1);
+            switch (key)
+            {
+                case "login": login = value; break;
+                case "world":
+                    try
+                    {
+                        world = Integer.parseInt(value);
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IllegalArgumentException("Invalid world in fleet spec: " + value);
+                    }
+                    break;
+                case "plugin": plugin = value; break;
+                case "proxy": proxy = value; break;
+                default:
+                    throw new IllegalArgumentException("Unknown fleet spec key: " + key);
+            }
+        }
+        return new ClientSpec(login, world, plugin, proxy);
+    }
+
+    /**
+     * @return program args for this client
+     */
+    public List<String> toArgs()
+    {
+        List<String> args = new ArrayList<>();
+        if(login != null)
+        {
+            args.add("--login");
+            args.add(login);
+        }
+        if(world != null)
+        {
+            args.add("--world");
+            args.add(String.valueOf(world));
+        }
+        if(plugin != null)
+        {
+            args.add("--plugin");
+            args.add(plugin);
+        }
+        if(proxy != null)
+        {
+            args.add("--proxy");
+            args.add(proxy);
+        }
+        return args;
+    }
+
+    @Override
+    public String toString()
+    {
+        // never print credentials
+        String user = login == null ? "-" : login.split(":", 2)[0];
+        return user + "@" + (world == null ? "any" : world) + (plugin == null ? "" : " [" + plugin + "]");
+    }
+}
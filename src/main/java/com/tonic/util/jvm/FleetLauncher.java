@@ -0,0 +1,292 @@
+package com.tonic.util.jvm;
+
+import com.tonic.util.JVMLauncher;
+import com.tonic.util.startup.StartupProfiler;
+import com.tonic.util.supervisor.ClientSupervisor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Launches several clients on one host, splitting its memory and cores between them.
+ * <p>
+ * Every child gets a heap from the host budget, GC and JIT thread counts matching its share
+ * of cores, and (on Linux) a CPU affinity mask over that share. Starts are staggered so the
+ * clients don't all warm up their JIT at the same moment.
+ */
+public class FleetLauncher
+{
+    public static final long DEFAULT_STAGGER_MILLIS = 10_000;
+    private static final String TASKSET = "/usr/bin/taskset";
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    private final HostResources host;
+    private final List<ClientSpec> specs;
+    private long staggerMillis = DEFAULT_STAGGER_MILLIS;
+    private boolean dryRun = false;
+    private boolean cds = true;
+    private boolean supervise = false;
+
+    public FleetLauncher(HostResources host, List<ClientSpec> specs)
+    {
+        if(specs.isEmpty())
+            throw new IllegalArgumentException("Fleet has no clients");
+        this.host = host;
+        this.specs = specs;
+    }
+
+    /**
+     * read a fleet file, one {@link ClientSpec} per line. Blank lines and # comments are skipped.
+     * @param file fleet file
+     * @return specs
+     * @throws IOException if the file cannot be read
+     */
+    public static List<ClientSpec> readSpecs(Path file) throws IOException
+    {
+        List<ClientSpec> specs = new ArrayList<>();
+        for(String line : Files.readAllLines(file, StandardCharsets.UTF_8))
+        {
+            String trimmed = line.trim();
+            if(trimmed.isEmpty() || trimmed.startsWith("#"))
+                continue;
+            specs.add(ClientSpec.parse(trimmed));
+        }
+        return specs;
+    }
+
+    public FleetLauncher stagger(long millis)
+    {
+        this.staggerMillis = Math.max(0, millis);
+        return this;
+    }
+
+    public FleetLauncher dryRun(boolean dryRun)
+    {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    public FleetLauncher cds(boolean cds)
+    {
+        this.cds = cds;
+        return this;
+    }
+
+    public FleetLauncher supervise(boolean supervise)
+    {
+        this.supervise = supervise;
+        return this;
+    }
+
+    /**
+     * start every client, blocking between starts for the stagger delay
+     * @param mainClass client main class
+     * @param classpath classpath, null for the launcher's own
+     * @param options JVM options shared by every client, heap sizes left unset fit the host budget
+     * @param baseArgs program args shared by every client
+     * @return started processes, empty in dry-run mode
+     * @throws IOException if a child fails to start
+     */
+    public List<Process> launch(String mainClass, String classpath, JvmOptions options, List<String> baseArgs) throws IOException
+    {
+        JvmProfileEngine engine = new JvmProfileEngine(host, specs.size());
+        JvmProfile profile = options.isMin()
+                ? engine.selectMinimal(options.getXms(), options.getXmx(), options.getGc())
+                : engine.select(options.getXms(), options.getXmx(), options.getGc());
+        int cores = engine.coresPerClient();
+        CdsArchive archive = cds ? CdsArchive.forClasspath(JVMLauncher.resolveClasspath(classpath)) : null;
+        if(archive != null && !dryRun)
+            archive.train();
+
+        System.out.println("[FleetLauncher] " + specs.size() + " clients on " + host + ": " + profile.getMaxHeap() + " heap, " + cores + " cores each");
+
+        List<Process> processes = new ArrayList<>();
+        for(int i = 0; i < specs.size(); i++)
+        {
+            ClientSpec spec = specs.get(i);
+            List<String> jvmFlags = new ArrayList<>(profile.getFlags());
+            // tiered compilation needs at least two compiler threads, the --min profile sets its own
+            if(!options.isMin())
+                jvmFlags.add("-XX:CICompilerCount=" + Math.max(2, Math.min(cores, 4)));
+            jvmFlags.addAll(options.toJvmFlags());
+            if(supervise)
+                jvmFlags.addAll(ClientSupervisor.JVM_FLAGS);
+            if(options.isProfileStartup() || options.isProfileStartupJfr())
+                jvmFlags.addAll(StartupProfiler.jvmFlags(options.isProfileStartupJfr(), System.currentTimeMillis()));
+
+            if(i > 0 && staggerMillis > 0 && !dryRun)
+                sleep(staggerMillis);
+
+            // clients launched while the archive is still being trained start without CDS
+            List<String> cdsFlags = archive != null ? archive.jvmFlags() : new ArrayList<>();
+            jvmFlags.addAll(cdsFlags);
+
+            List<String> command = new ArrayList<>(affinityPrefix(i, cores));
+            command.addAll(JVMLauncher.buildCommand(mainClass, classpath, jvmFlags, argsFor(baseArgs, spec)));
+
+            if(dryRun)
+            {
+                System.out.println("[FleetLauncher] " + spec + ": " + String.join(" ", redact(command)));
+                continue;
+            }
+
+            Process process;
+            if(supervise)
+            {
+                process = ClientSupervisor.get().start(spec.toString(), command).getProcess();
+            }
+            else
+            {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.inheritIO();
+                process = pb.start();
+            }
+            processes.add(process);
+            System.out.println("[FleetLauncher] started " + spec);
+        }
+        return processes;
+    }
+
+    /**
+     * base args with any field the spec sets removed (in both the {@code --name value} and
+     * {@code --name=value} forms), followed by the spec's args
+     */
+    static List<String> argsFor(List<String> baseArgs, ClientSpec spec)
+    {
+        List<String> specArgs = spec.toArgs();
+        Set<String> specNames = new HashSet<>();
+        for(String arg : specArgs)
+        {
+            if(arg.startsWith("--"))
+                specNames.add(optionName(arg));
+        }
+        List<String> args = new ArrayList<>();
+        for(int i = 0; i < baseArgs.size(); i++)
+        {
+            String arg = baseArgs.get(i);
+            if(arg.startsWith("--") && specNames.contains(optionName(arg)))
+            {
+                if(arg.indexOf('=') < 0)
+                    i++; // drop the value as well
+                continue;
+            }
+            args.add(arg);
+        }
+        args.addAll(specArgs);
+        return args;
+    }
+
+    /**
+     * @param arg {@code --name} or {@code --name=value}
+     * @return name
+     */
+    private static String optionName(String arg)
+    {
+        int split = arg.indexOf('=');
+        return split < 0 ? arg : arg.substring(0, split);
+    }
+
+    /**
+     * pin child {@code index} to its own share of the CPUs this process may run on, wrapping
+     * when there are more clients than CPUs
+     */
+    private List<String> affinityPrefix(int index, int cores)
+    {
+        List<String> prefix = new ArrayList<>();
+        if(!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux") || !new File(TASKSET).canExecute())
+            return prefix;
+
+        // not necessarily 0..n-1: containers and taskset-launched parents get a restricted cpuset
+        List<Integer> allowed = allowedCpus();
+        if(allowed.isEmpty())
+            return prefix;
+        int first = (index * cores) % allowed.size();
+        int last = Math.min(allowed.size() - 1, first + cores - 1);
+        StringBuilder cpus = new StringBuilder();
+        for(int i = first; i <= last; i++)
+        {
+            if(cpus.length() > 0)
+                cpus.append(',');
+            cpus.append(allowed.get(i));
+        }
+        prefix.add(TASKSET);
+        prefix.add("-c");
+        prefix.add(cpus.toString());
+        return prefix;
+    }
+
+    /**
+     * @return the CPUs this process may run on, from Cpus_allowed_list (e.g. "4-7,10"), empty if unknown
+     */
+    static List<Integer> allowedCpus()
+    {
+        List<Integer> cpus = new ArrayList<>();
+        try
+        {
+            for(String line : Files.readAllLines(PROC_STATUS, StandardCharsets.UTF_8))
+            {
+                if(!line.startsWith("Cpus_allowed_list:"))
+                    continue;
+                for(String range : line.substring(line.indexOf(':') + 1).trim().split(","))
+                {
+                    if(range.isEmpty())
+                        continue;
+                    int dash = range.indexOf('-');
+                    int from = Integer.parseInt(range.substring(0, dash < 0 ? range.length() : dash).trim());
+                    int to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).trim());
+                    for(int cpu = from; cpu <= to; cpu++)
+                    {
+                        cpus.add(cpu);
+                    }
+                }
+                break;
+            }
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            cpus.clear();
+        }
+        return cpus;
+    }
+
+    private static List<String> redact(List<String> command)
+    {
+        List<String> redacted = new ArrayList<>(command);
+        for(int i = 0; i < redacted.size(); i++)
+        {
+            String arg = redacted.get(i);
+            if(arg.equals("--login") && i + 1 < redacted.size())
+                redacted.set(i + 1, redactLogin(redacted.get(i + 1)));
+            else if(arg.startsWith("--login="))
+                redacted.set(i, "--login=" + redactLogin(arg.substring("--login=".length())));
+        }
+        return redacted;
+    }
+
+    private static String redactLogin(String login)
+    {
+        return login.split(":", 2)[0] + ":***";
+    }
+
+    private static void sleep(long millis) throws IOException
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Fleet launch interrupted", e);
+        }
+    }
+}
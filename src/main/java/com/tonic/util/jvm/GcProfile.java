@@ -0,0 +1,68 @@
+package com.tonic.util.jvm;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Garbage collectors the launcher can pick for a child JVM.
+ */
+public enum GcProfile
+{
+    SERIAL("UseSerialGC"),
+    PARALLEL("UseParallelGC"),
+    G1("UseG1GC"),
+    Z("UseZGC"),
+    SHENANDOAH("UseShenandoahGC");
+
+    private final String flag;
+
+    GcProfile(String flag)
+    {
+        this.flag = flag;
+    }
+
+    /**
+     * @return the -XX flag selecting this collector
+     */
+    public String toJvmArg()
+    {
+        return "-XX:+" + flag;
+    }
+
+    /**
+     * check whether the running JVM binary (which children are launched with) ships this collector
+     * @return true if supported
+     */
+    public boolean isSupported()
+    {
+        if(this == Z && Runtime.version().feature() < 15)
+            return false; // experimental before 15
+        try
+        {
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption(flag);
+            return true;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @param name collector name, e.g. "g1", "zgc", "serial"
+     * @return GcProfile
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static GcProfile parse(String name)
+    {
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace("GC", "");
+        for(GcProfile gc : values())
+        {
+            if(gc.name().equals(normalized))
+                return gc;
+        }
+        throw new IllegalArgumentException("Unknown garbage collector: " + name + " (serial, parallel, g1, zgc, shenandoah)");
+    }
+}
@@ -0,0 +1,77 @@
+package com.tonic.util.jvm;
+
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * CPU and memory available on the host the launcher runs on, capped by the cgroup limits
+ * when the launcher runs in a container.
+ */
+@Getter
+public class HostResources
+{
+    private final int cores;
+    private final MemorySize physicalMemory;
+    /**
+     * true if a cgroup memory or CPU limit is lower than what the machine has
+     */
+    private final boolean containerLimited;
+
+    public HostResources(int cores, MemorySize physicalMemory)
+    {
+        this(cores, physicalMemory, false);
+    }
+
+    public HostResources(int cores, MemorySize physicalMemory, boolean containerLimited)
+    {
+        this.cores = Math.max(1, cores);
+        this.physicalMemory = physicalMemory;
+        this.containerLimited = containerLimited;
+    }
+
+    /**
+     * @return resources of the current host
+     */
+    public static HostResources detect()
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long memory = physicalMemoryBytes();
+        boolean limited = false;
+
+        // the JVM is only partly container aware (e.g. not for parent cgroup limits), so apply the limits ourselves
+        CgroupLimits limits = CgroupLimits.detect();
+        if(limits.getMemoryBytes() > 0 && limits.getMemoryBytes() < memory)
+        {
+            memory = limits.getMemoryBytes();
+            limited = true;
+        }
+        if(limits.getCpus() > 0 && Math.ceil(limits.getCpus()) < cores)
+        {
+            cores = (int) Math.ceil(limits.getCpus());
+            limited = true;
+        }
+        return new HostResources(cores, MemorySize.ofBytes(memory), limited);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long physicalMemoryBytes()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if(os instanceof com.sun.management.OperatingSystemMXBean)
+        {
+            long total = ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+            if(total > 0)
+                return total;
+        }
+        // unknown, assume a modest desktop
+        return 8 * MemorySize.GB;
+    }
+
+    @Override
+    public String toString()
+    {
+        return cores + " cores, " + physicalMemory + " RAM" + (containerLimited ? " (cgroup limit)" : "");
+    }
+}
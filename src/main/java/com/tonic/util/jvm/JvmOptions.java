@@ -0,0 +1,253 @@
+package com.tonic.util.jvm;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Typed JVM and launcher options for child clients, validated once before launch.
+ * <p>
+ * Built from VitaLiteOptions (see {@code VitaLiteOptions#getJvmOptions()}) or, for callers that
+ * only hold raw args, from {@link #fromArgs}. The names match the VitaLiteOptions CLI arguments.
+ */
+@Getter
+public class JvmOptions
+{
+    /**
+     * launcher-only arguments that take a value, stripped from the child's program args
+     */
+    private static final Set<String> VALUE_ARGUMENTS = new HashSet<>(Arrays.asList(
+            "Xms", "Xmx", "Xss", "metaspace", "codeCache", "gc", "compilerThreads", "jvmArgs",
+            "clients", "fleet", "fleetStagger", "warmPool"
+    ));
+
+    /**
+     * launcher-only flags, stripped from the child's program args
+     */
+    private static final Set<String> FLAG_ARGUMENTS = new HashSet<>(Arrays.asList(
+            "dryRun", "noCds", "supervise", "profileStartup", "profileStartupJfr"
+    ));
+
+    /**
+     * flags read by the launcher that the client also needs, kept in the child's program args
+     */
+    private static final Set<String> SHARED_FLAGS = new HashSet<>(Collections.singletonList(
+            "min"
+    ));
+
+    private static final MemorySize MIN_STACK = MemorySize.ofBytes(256 * MemorySize.KB);
+    private static final MemorySize MIN_METASPACE = MemorySize.ofMegabytes(32);
+    private static final MemorySize MIN_CODE_CACHE = MemorySize.ofMegabytes(8);
+
+    private MemorySize xms;
+    private MemorySize xmx;
+    private MemorySize xss = MemorySize.ofMegabytes(2);
+    private MemorySize maxMetaspace;
+    private MemorySize reservedCodeCache;
+    private GcProfile gc;
+    private Integer compilerThreads;
+    private List<String> passthrough = Collections.emptyList();
+    private int clients = 1;
+    private String fleet;
+    private long fleetStaggerMillis = FleetLauncher.DEFAULT_STAGGER_MILLIS;
+    private int warmPool = 0;
+    private boolean dryRun = false;
+    private boolean cds = true;
+    private boolean supervise = false;
+    private boolean min = false;
+    private boolean profileStartup = false;
+    private boolean profileStartupJfr = false;
+
+    /**
+     * parse the launcher options out of raw args. Accepts --name value, --name=value and the
+     * single dash forms; --Xmx2g style is accepted for the heap and stack sizes.
+     * @param args raw program args
+     * @param remaining receives every arg that is not a launcher option
+     * @return validated options
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public static JvmOptions fromArgs(String[] args, List<String> remaining)
+    {
+        JvmOptions options = new JvmOptions();
+        for(int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            String name = optionName(arg);
+            if(name == null)
+            {
+                remaining.add(arg);
+                continue;
+            }
+
+            String value = null;
+            int eq = name.indexOf('=');
+            if(eq >= 0)
+            {
+                value = name.substring(eq + 1);
+                name = name.substring(0, eq);
+            }
+            else if(isSizeShorthand(name))
+            {
+                value = name.substring(3);
+                name = name.substring(0, 3);
+            }
+
+            if(SHARED_FLAGS.contains(name))
+            {
+                options.set(name, value == null ? "true" : value);
+                remaining.add(arg);
+            }
+            else if(FLAG_ARGUMENTS.contains(name))
+            {
+                options.set(name, value == null ? "true" : value);
+            }
+            else if(VALUE_ARGUMENTS.contains(name))
+            {
+                if(value == null)
+                {
+                    if(i + 1 >= args.length)
+                        throw new IllegalArgumentException("Missing value for --" + name);
+                    value = args[++i];
+                }
+                options.set(name, value);
+            }
+            else
+            {
+                remaining.add(arg);
+            }
+        }
+        return options.validate();
+    }
+
+    /**
+     * @param args raw program args
+     * @return the args with every launcher option removed
+     */
+    public static List<String> stripLauncherArgs(String[] args)
+    {
+        List<String> remaining = new ArrayList<>();
+        fromArgs(args, remaining);
+        return remaining;
+    }
+
+    /**
+     * set an option by its CLI name
+     * @param name option name
+     * @param value option value
+     * @return this
+     * @throws IllegalArgumentException for unknown names or malformed values
+     */
+    public JvmOptions set(String name, String value)
+    {
+        if(value == null)
+            return this;
+        switch (name)
+        {
+            case "Xms": xms = MemorySize.parse(value); break;
+            case "Xmx": xmx = MemorySize.parse(value); break;
+            case "Xss": xss = MemorySize.parse(value); break;
+            case "metaspace": maxMetaspace = MemorySize.parse(value); break;
+            case "codeCache": reservedCodeCache = MemorySize.parse(value); break;
+            case "gc": gc = GcProfile.parse(value); break;
+            case "compilerThreads": compilerThreads = parseInt(name, value); break;
+            case "jvmArgs": passthrough = Arrays.asList(value.trim().split("\\s+")); break;
+            case "clients": clients = parseInt(name, value); break;
+            case "fleet": fleet = value; break;
+            case "fleetStagger": fleetStaggerMillis = parseInt(name, value) * 1000L; break;
+            case "warmPool": warmPool = parseInt(name, value); break;
+            case "dryRun": dryRun = Boolean.parseBoolean(value); break;
+            case "noCds": cds = !Boolean.parseBoolean(value); break;
+            case "supervise": supervise = Boolean.parseBoolean(value); break;
+            case "min": min = Boolean.parseBoolean(value); break;
+            case "profileStartup": profileStartup = Boolean.parseBoolean(value); break;
+            case "profileStartupJfr": profileStartupJfr = Boolean.parseBoolean(value); break;
+            default:
+                throw new IllegalArgumentException("Unknown JVM option: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * check every option, reporting all problems at once
+     * @return this
+     * @throws IllegalArgumentException listing every invalid option
+     */
+    public JvmOptions validate()
+    {
+        List<String> problems = new ArrayList<>();
+        if(xms != null && xmx != null && xms.compareTo(xmx) > 0)
+            problems.add("Xms (" + xms + ") is larger than Xmx (" + xmx + ")");
+        if(xss.compareTo(MIN_STACK) < 0)
+            problems.add("Xss must be at least " + MIN_STACK);
+        if(maxMetaspace != null && maxMetaspace.compareTo(MIN_METASPACE) < 0)
+            problems.add("metaspace must be at least " + MIN_METASPACE);
+        if(reservedCodeCache != null && reservedCodeCache.compareTo(MIN_CODE_CACHE) < 0)
+            problems.add("codeCache must be at least " + MIN_CODE_CACHE);
+        if(compilerThreads != null && compilerThreads < 1)
+            problems.add("compilerThreads must be at least 1");
+        if(clients < 1)
+            problems.add("clients must be at least 1");
+        if(warmPool < 0)
+            problems.add("warmPool cannot be negative");
+        if(fleetStaggerMillis < 0)
+            problems.add("fleetStagger cannot be negative");
+        for(String flag : passthrough)
+        {
+            if(!flag.startsWith("-XX:") && !flag.startsWith("-D"))
+                problems.add("jvmArgs only accepts -XX: and -D flags: " + flag);
+        }
+        if(!problems.isEmpty())
+            throw new IllegalArgumentException("Invalid JVM options: " + String.join("; ", problems));
+        return this;
+    }
+
+    /**
+     * flags that apply on top of the heap/GC profile. Appended last so they win over defaults.
+     * @return JVM flags
+     */
+    public List<String> toJvmFlags()
+    {
+        List<String> flags = new ArrayList<>();
+        flags.add("-Xss" + xss.toJvmArg());
+        if(maxMetaspace != null)
+            flags.add("-XX:MaxMetaspaceSize=" + maxMetaspace.toJvmArg());
+        if(reservedCodeCache != null)
+            flags.add("-XX:ReservedCodeCacheSize=" + reservedCodeCache.toJvmArg());
+        if(compilerThreads != null)
+            flags.add("-XX:CICompilerCount=" + compilerThreads);
+        flags.addAll(passthrough);
+        return flags;
+    }
+
+    private static String optionName(String arg)
+    {
+        if(arg.startsWith("--"))
+            return arg.substring(2);
+        if(arg.startsWith("-") && arg.length() > 1)
+            return arg.substring(1);
+        return null;
+    }
+
+    private static boolean isSizeShorthand(String name)
+    {
+        return name.length() > 3 && (name.startsWith("Xms") || name.startsWith("Xmx") || name.startsWith("Xss"))
+                && Character.isDigit(name.charAt(3));
+    }
+
+    private static int parseInt(String name, String value)
+    {
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.tonic.util.jvm;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Heap sizes, collector and tuning flags chosen for one child JVM.
+ */
+@Getter
+public class JvmProfile
+{
+    /**
+     * initial heap, null to leave it to the JVM
+     */
+    private final MemorySize initialHeap;
+    private final MemorySize maxHeap;
+    private final GcProfile gc;
+    /**
+     * heap and collector flags, in command line order
+     */
+    private final List<String> flags;
+
+    JvmProfile(MemorySize initialHeap, MemorySize maxHeap, GcProfile gc, List<String> flags)
+    {
+        this.initialHeap = initialHeap;
+        this.maxHeap = maxHeap;
+        this.gc = gc;
+        this.flags = Collections.unmodifiableList(flags);
+    }
+
+    @Override
+    public String toString()
+    {
+        return gc + " " + String.join(" ", flags);
+    }
+}
@@ -0,0 +1,243 @@
+package com.tonic.util.jvm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks heap sizes and a garbage collector for a child JVM from the requested heap,
+ * the host's cores and physical memory, and how many clients share the host.
+ * <ul>
+ *     <li>Serial for small heaps or when a client gets less than two cores</li>
+ *     <li>Parallel for mid-sized heaps on hosts shared by several clients (smallest footprint of the multi-threaded collectors)</li>
+ *     <li>G1 for larger heaps</li>
+ *     <li>ZGC, or Shenandoah where ZGC is unavailable, for very large heaps with cores to spare</li>
+ * </ul>
+ * {@link #selectMinimal} instead sizes every memory pool as a share of the per-client budget for dense headless fleets.
+ */
+public class JvmProfileEngine
+{
+    public static final MemorySize DEFAULT_HEAP = MemorySize.ofMegabytes(768);
+    private static final MemorySize MIN_HEAP = MemorySize.ofMegabytes(256);
+    private static final MemorySize SMALL_HEAP = MemorySize.ofMegabytes(1024);
+    private static final MemorySize MID_HEAP = MemorySize.ofMegabytes(2048);
+    private static final MemorySize HUGE_HEAP = MemorySize.ofMegabytes(8192);
+    // native memory a client needs beyond its heap (metaspace, code cache, GPU buffers, threads)
+    private static final MemorySize NATIVE_RESERVE = MemorySize.ofMegabytes(384);
+    // share of physical memory left to clients, the rest stays with the OS
+    private static final double HOST_SHARE = 0.8;
+    // a cgroup limit is already the clients' share, only keep a margin for the launcher
+    private static final double CONTAINER_SHARE = 0.9;
+
+    // --min profile, shares of the per-client budget and their bounds
+    private static final double MIN_HEAP_SHARE = 0.5;
+    private static final double MIN_METASPACE_SHARE = 0.15;
+    private static final double MIN_CODE_CACHE_SHARE = 0.06;
+    private static final double MIN_DIRECT_SHARE = 0.08;
+    private static final MemorySize MIN_PROFILE_HEAP_FLOOR = MemorySize.ofMegabytes(192);
+    private static final MemorySize MIN_METASPACE_FLOOR = MemorySize.ofMegabytes(96);
+    private static final MemorySize MIN_METASPACE_CAP = MemorySize.ofMegabytes(192);
+    private static final MemorySize MIN_CLASS_SPACE_FLOOR = MemorySize.ofMegabytes(48);
+    private static final MemorySize MIN_CLASS_SPACE_CAP = MemorySize.ofMegabytes(64);
+    private static final MemorySize MIN_CODE_CACHE_FLOOR = MemorySize.ofMegabytes(24);
+    private static final MemorySize MIN_CODE_CACHE_CAP = MemorySize.ofMegabytes(48);
+    private static final MemorySize MIN_DIRECT_FLOOR = MemorySize.ofMegabytes(32);
+    private static final MemorySize MIN_DIRECT_CAP = MemorySize.ofMegabytes(128);
+
+    private final HostResources host;
+    private final int clients;
+
+    /**
+     * @param host host resources
+     * @param clients number of clients expected to run on the host
+     */
+    public JvmProfileEngine(HostResources host, int clients)
+    {
+        this.host = host;
+        this.clients = Math.max(1, clients);
+    }
+
+    /**
+     * @return heap each client can use without the host swapping
+     */
+    public MemorySize heapBudget()
+    {
+        long perClient = (long) (host.getPhysicalMemory().toBytes() * HOST_SHARE) / clients;
+        return MemorySize.ofBytes(Math.max(MIN_HEAP.toBytes(), perClient - NATIVE_RESERVE.toBytes())).scale(1.0);
+    }
+
+    /**
+     * @return total memory, heap and native, each client can use
+     */
+    public MemorySize memoryBudget()
+    {
+        double share = host.isContainerLimited() ? CONTAINER_SHARE : HOST_SHARE;
+        return MemorySize.ofBytes((long) (host.getPhysicalMemory().toBytes() * share) / clients);
+    }
+
+    /**
+     * @return cores each client can use
+     */
+    public int coresPerClient()
+    {
+        return Math.max(1, host.getCores() / clients);
+    }
+
+    /**
+     * choose a profile
+     * @param xms requested initial heap, null if not set
+     * @param xmx requested maximum heap, null if not set
+     * @return JvmProfile
+     */
+    public JvmProfile select(MemorySize xms, MemorySize xmx)
+    {
+        return select(xms, xmx, null);
+    }
+
+    /**
+     * choose a profile
+     * @param xms requested initial heap, null if not set
+     * @param xmx requested maximum heap, null if not set
+     * @param gc requested collector, null to choose one
+     * @return JvmProfile
+     */
+    public JvmProfile select(MemorySize xms, MemorySize xmx, GcProfile gc)
+    {
+        MemorySize maxHeap = xmx != null ? xmx : DEFAULT_HEAP.min(heapBudget()).max(MIN_HEAP);
+        int cores = coresPerClient();
+        if(gc != null && !gc.isSupported())
+        {
+            GcProfile chosen = chooseGc(maxHeap, cores);
+            unsupported(gc, chosen);
+            gc = chosen;
+        }
+        else if(gc == null)
+            gc = chooseGc(maxHeap, cores);
+
+        MemorySize initialHeap = xms;
+        if(initialHeap == null && gc != GcProfile.SERIAL)
+            initialHeap = maxHeap.scale(0.5); // reduces early GC on the larger heaps
+        if(initialHeap != null)
+            initialHeap = initialHeap.min(maxHeap);
+
+        List<String> flags = new ArrayList<>();
+        if(initialHeap != null)
+            flags.add("-Xms" + initialHeap.toJvmArg());
+        flags.add("-Xmx" + maxHeap.toJvmArg());
+        flags.add(gc.toJvmArg());
+        addTuning(flags, gc, maxHeap, cores);
+        return new JvmProfile(initialHeap, maxHeap, gc, flags);
+    }
+
+    /**
+     * choose the low-footprint profile used with --min. Heap, metaspace, code cache and direct memory
+     * are shares of {@link #memoryBudget()}, so a client stays inside its container limit instead of
+     * being OOM killed. C1 only with a single compiler thread, and a heap that shrinks back when idle.
+     * @param xms requested initial heap, null if not set
+     * @param xmx requested maximum heap, null to size it from the budget
+     * @param gc requested collector, null for serial
+     * @return JvmProfile
+     */
+    public JvmProfile selectMinimal(MemorySize xms, MemorySize xmx, GcProfile gc)
+    {
+        MemorySize budget = memoryBudget();
+        MemorySize maxHeap = xmx != null ? xmx : budget.scale(MIN_HEAP_SHARE).min(DEFAULT_HEAP).max(MIN_PROFILE_HEAP_FLOOR);
+        MemorySize metaspace = budget.scale(MIN_METASPACE_SHARE).min(MIN_METASPACE_CAP).max(MIN_METASPACE_FLOOR);
+        MemorySize classSpace = metaspace.scale(0.5).min(MIN_CLASS_SPACE_CAP).max(MIN_CLASS_SPACE_FLOOR);
+        MemorySize codeCache = budget.scale(MIN_CODE_CACHE_SHARE).min(MIN_CODE_CACHE_CAP).max(MIN_CODE_CACHE_FLOOR);
+        MemorySize direct = budget.scale(MIN_DIRECT_SHARE).min(MIN_DIRECT_CAP).max(MIN_DIRECT_FLOOR);
+        if(gc != null && !gc.isSupported())
+        {
+            unsupported(gc, GcProfile.SERIAL);
+            gc = GcProfile.SERIAL;
+        }
+        else if(gc == null)
+            gc = GcProfile.SERIAL;
+        MemorySize initialHeap = xms != null ? xms.min(maxHeap) : null;
+
+        List<String> flags = new ArrayList<>();
+        if(initialHeap != null)
+            flags.add("-Xms" + initialHeap.toJvmArg());
+        flags.add("-Xmx" + maxHeap.toJvmArg());
+        flags.add(gc.toJvmArg());
+        flags.add("-XX:MaxMetaspaceSize=" + metaspace.toJvmArg());
+        flags.add("-XX:CompressedClassSpaceSize=" + classSpace.toJvmArg());
+        flags.add("-XX:ReservedCodeCacheSize=" + codeCache.toJvmArg());
+        flags.add("-XX:MaxDirectMemorySize=" + direct.toJvmArg());
+        // C1 only: far smaller code cache and compiler arenas, and one compiler thread is allowed
+        flags.add("-XX:TieredStopAtLevel=1");
+        flags.add("-XX:CICompilerCount=1");
+        // give memory back to the container once load drops
+        flags.add("-XX:MinHeapFreeRatio=10");
+        flags.add("-XX:MaxHeapFreeRatio=30");
+        if(gc != GcProfile.SERIAL)
+            addTuning(flags, gc, maxHeap, coresPerClient());
+        return new JvmProfile(initialHeap, maxHeap, gc, flags);
+    }
+
+    private static void unsupported(GcProfile requested, GcProfile used)
+    {
+        System.err.println("[JvmProfileEngine] " + requested.toJvmArg() + " is not supported by this JVM, using " + used.toJvmArg());
+    }
+
+    private GcProfile chooseGc(MemorySize maxHeap, int cores)
+    {
+        if(maxHeap.compareTo(SMALL_HEAP) <= 0 || cores < 2)
+            return GcProfile.SERIAL;
+        if(maxHeap.compareTo(MID_HEAP) <= 0 && clients > 1)
+            return GcProfile.PARALLEL;
+        if(maxHeap.compareTo(HUGE_HEAP) >= 0 && cores >= 4)
+        {
+            if(GcProfile.Z.isSupported())
+                return GcProfile.Z;
+            if(GcProfile.SHENANDOAH.isSupported())
+                return GcProfile.SHENANDOAH;
+        }
+        return GcProfile.G1;
+    }
+
+    private void addTuning(List<String> flags, GcProfile gc, MemorySize maxHeap, int cores)
+    {
+        switch (gc)
+        {
+            case SERIAL:
+                break;
+            case PARALLEL:
+                flags.add("-XX:ParallelGCThreads=" + Math.min(cores, 8));
+                break;
+            case G1:
+                flags.add("-XX:MaxGCPauseMillis=50");
+                flags.add("-XX:G1HeapRegionSize=" + g1RegionSize(maxHeap));
+                if(clients > 1)
+                {
+                    flags.add("-XX:ParallelGCThreads=" + cores);
+                    flags.add("-XX:ConcGCThreads=" + Math.max(1, cores / 4));
+                }
+                break;
+            case Z:
+                int feature = Runtime.version().feature();
+                if(feature >= 21 && feature < 23)
+                    flags.add("-XX:+ZGenerational");
+                if(clients > 1)
+                    flags.add("-XX:ConcGCThreads=" + Math.max(1, cores / 4));
+                break;
+            case SHENANDOAH:
+                if(clients > 1)
+                    flags.add("-XX:ShenandoahGCHeuristics=compact");
+                break;
+        }
+    }
+
+    /**
+     * G1 aims for about 2048 regions, sized as a power of two between 1M and 32M
+     */
+    private static String g1RegionSize(MemorySize maxHeap)
+    {
+        long target = maxHeap.toBytes() / 2048;
+        long size = MemorySize.MB;
+        while(size < target && size < 32 * MemorySize.MB)
+        {
+            size <<= 1;
+        }
+        return size / MemorySize.MB + "M";
+    }
+}
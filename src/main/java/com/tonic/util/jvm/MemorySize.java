@@ -0,0 +1,145 @@
+package com.tonic.util.jvm;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Exact JVM memory size. Parses plain bytes and k/m/g/t suffixes (binary units),
+ * including fractions such as "1.5g", and formats back to the largest exact unit.
+ */
+public final class MemorySize implements Comparable<MemorySize>
+{
+    public static final long KB = 1024L;
+    public static final long MB = KB * 1024;
+    public static final long GB = MB * 1024;
+    public static final long TB = GB * 1024;
+
+    private final long bytes;
+
+    private MemorySize(long bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    public static MemorySize ofBytes(long bytes)
+    {
+        if(bytes < 0)
+            throw new IllegalArgumentException("Negative memory size: " + bytes);
+        return new MemorySize(bytes);
+    }
+
+    public static MemorySize ofMegabytes(long megabytes)
+    {
+        return ofBytes(megabytes * MB);
+    }
+
+    /**
+     * parse a size such as "768m", "1.5g", "2G", "512mb" or "1073741824"
+     * @param value size string
+     * @return MemorySize
+     * @throws IllegalArgumentException if the value is not a valid size
+     */
+    public static MemorySize parse(String value)
+    {
+        if(value == null || value.trim().isEmpty())
+            throw new IllegalArgumentException("Empty memory size");
+
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        // "512mb" and "1024b" are accepted as well
+        if(text.endsWith("b"))
+            text = text.substring(0, text.length() - 1);
+
+        long unit = 1;
+        char last = text.isEmpty() ? ' ' : text.charAt(text.length() - 1);
+        switch (last)
+        {
+            case 'k': unit = KB; break;
+            case 'm': unit = MB; break;
+            case 'g': unit = GB; break;
+            case 't': unit = TB; break;
+        }
+        if(unit != 1)
+            text = text.substring(0, text.length() - 1);
+
+        try
+        {
+            BigDecimal amount = new BigDecimal(text);
+            if(amount.signum() < 0)
+                throw new IllegalArgumentException("Negative memory size: " + value);
+            return new MemorySize(amount.multiply(BigDecimal.valueOf(unit)).setScale(0, RoundingMode.HALF_UP).longValueExact());
+        }
+        catch (NumberFormatException | ArithmeticException e)
+        {
+            throw new IllegalArgumentException("Invalid memory size: " + value);
+        }
+    }
+
+    public long toBytes()
+    {
+        return bytes;
+    }
+
+    public long toMegabytes()
+    {
+        return bytes / MB;
+    }
+
+    /**
+     * @param fraction fraction to keep
+     * @return this size scaled down, rounded to whole megabytes (minimum 1m)
+     */
+    public MemorySize scale(double fraction)
+    {
+        long scaled = (long) (bytes * fraction);
+        return ofBytes(Math.max(MB, scaled - scaled % MB));
+    }
+
+    public MemorySize min(MemorySize other)
+    {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    public MemorySize max(MemorySize other)
+    {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    /**
+     * @return value formatted for a JVM flag, e.g. "768m" or "2g"
+     */
+    public String toJvmArg()
+    {
+        if(bytes != 0 && bytes % GB == 0)
+            return bytes / GB + "g";
+        if(bytes != 0 && bytes % MB == 0)
+            return bytes / MB + "m";
+        if(bytes != 0 && bytes % KB == 0)
+            return bytes / KB + "k";
+        return Long.toString(bytes);
+    }
+
+    @Override
+    public int compareTo(MemorySize other)
+    {
+        return Long.compare(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof MemorySize && ((MemorySize) o).bytes == bytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toJvmArg();
+    }
+}
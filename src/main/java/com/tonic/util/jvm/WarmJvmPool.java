@@ -0,0 +1,342 @@
+package com.tonic.util.jvm;
+
+import com.tonic.util.JVMLauncher;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of idle, pre-warmed child JVMs.
+ * <p>
+ * Each pooled child runs {@link WarmStart}: it boots, loads the shared classpath and waits on
+ * a loopback control socket. {@link #claim} sends it the client's program args (login, world,
+ * plugin, ...) so a restart only pays for the login, and a replacement is started in the
+ * background. System properties that differ per launch (e.g. the startup profiler's launch
+ * time) travel with the claim instead of the pool's flags. A claim only succeeds once the child acknowledges the args; pooled JVMs that die
+ * while starting or idle are replaced. Children authenticate with a per-pool random token and
+ * a per-child id registered before the child starts. JVM flags are fixed when the pool is
+ * created, so every pooled client gets the same heap and GC profile.
+ */
+public class WarmJvmPool implements AutoCloseable
+{
+    private static final int ACK_MILLIS = 5_000;
+    // consecutive pooled JVMs dying before they report ready, after which no more are started
+    private static final int MAX_FAILED_STARTS = 3;
+
+    private final String mainClass;
+    private final String classpath;
+    private final List<String> jvmFlags;
+    private final int size;
+    private final boolean pipeOutput;
+    private final String token = UUID.randomUUID().toString();
+    private final ServerSocket server;
+    private final AtomicLong nextId = new AtomicLong();
+    // by child id, registered before the child is started so it can never connect first
+    private final Map<String, CompletableFuture<Process>> starting = new ConcurrentHashMap<>();
+    private final BlockingQueue<Idle> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger failedStarts = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * @param mainClass client main class
+     * @param classpath classpath, null for the launcher's own
+     * @param jvmFlags heap, GC and tuning flags for every pooled JVM
+     * @param size number of idle JVMs to keep
+     * @param port loopback port for the control channel, 0 for any free port
+     * @throws IOException if the control socket cannot be bound
+     */
+    public WarmJvmPool(String mainClass, String classpath, List<String> jvmFlags, int size, int port) throws IOException
+    {
+        this(mainClass, classpath, jvmFlags, size, port, false);
+    }
+
+    /**
+     * @param mainClass client main class
+     * @param classpath classpath, null for the launcher's own
+     * @param jvmFlags heap, GC and tuning flags for every pooled JVM
+     * @param size number of idle JVMs to keep
+     * @param port loopback port for the control channel, 0 for any free port
+     * @param pipeOutput pipe the children's output to the claimer (e.g. the supervisor) instead of the launcher's console;
+     *                   an idle child's output waits in the pipe buffer until it is claimed
+     * @throws IOException if the control socket cannot be bound
+     */
+    public WarmJvmPool(String mainClass, String classpath, List<String> jvmFlags, int size, int port, boolean pipeOutput) throws IOException
+    {
+        this.mainClass = mainClass;
+        this.classpath = classpath;
+        this.jvmFlags = new ArrayList<>(jvmFlags);
+        this.size = Math.max(1, size);
+        this.pipeOutput = pipeOutput;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptLoop, "warm-jvm-pool");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for(int i = 0; i < this.size; i++)
+        {
+            spawn();
+        }
+    }
+
+    /**
+     * hand an idle JVM to a client, or cold-start one if none is ready in time
+     * @param programArgs client program args
+     * @param waitMillis how long to wait for an idle JVM
+     * @return the client process
+     * @throws IOException if the client cannot be started
+     */
+    public Process claim(List<String> programArgs, long waitMillis) throws IOException
+    {
+        return claim(programArgs, Collections.emptyMap(), waitMillis);
+    }
+
+    /**
+     * hand an idle JVM to a client, or cold-start one if none is ready in time
+     * @param programArgs client program args
+     * @param properties system properties for this client only, set before its main runs
+     * @param waitMillis how long to wait for an idle JVM
+     * @return the client process
+     * @throws IOException if the client cannot be started
+     */
+    public Process claim(List<String> programArgs, Map<String, String> properties, long waitMillis) throws IOException
+    {
+        while(true)
+        {
+            Idle jvm;
+            try
+            {
+                jvm = idle.poll(waitMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                jvm = null;
+            }
+
+            if(jvm == null)
+            {
+                ProcessBuilder pb = new ProcessBuilder(command(programArgs, properties));
+                if(!pipeOutput)
+                    pb.inheritIO();
+                return pb.start();
+            }
+
+            try (Socket socket = jvm.socket)
+            {
+                // a write to a dead child's socket can still succeed into the send buffer
+                if(!jvm.process.isAlive())
+                    throw new IOException("pooled JVM " + jvm.process.pid() + " exited");
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(properties.size());
+                for(Map.Entry<String, String> property : properties.entrySet())
+                {
+                    out.writeUTF(property.getKey());
+                    out.writeUTF(property.getValue());
+                }
+                out.writeInt(programArgs.size());
+                for(String arg : programArgs)
+                {
+                    out.writeUTF(arg);
+                }
+                out.flush();
+                socket.setSoTimeout(ACK_MILLIS);
+                if(socket.getInputStream().read() != WarmStart.ACK)
+                    throw new IOException("pooled JVM " + jvm.process.pid() + " did not acknowledge");
+                spawn();
+                return jvm.process;
+            }
+            catch (IOException e)
+            {
+                // the idle JVM died, replace it and try the next one
+                jvm.process.destroy();
+                spawn();
+            }
+        }
+    }
+
+    /**
+     * @param programArgs client program args
+     * @return the command a cold start of a client from this pool runs
+     */
+    public List<String> command(List<String> programArgs)
+    {
+        return command(programArgs, Collections.emptyMap());
+    }
+
+    /**
+     * @param programArgs client program args
+     * @param properties system properties for this client only
+     * @return the command a cold start of a client from this pool runs
+     */
+    public List<String> command(List<String> programArgs, Map<String, String> properties)
+    {
+        List<String> flags = new ArrayList<>(jvmFlags);
+        for(Map.Entry<String, String> property : properties.entrySet())
+        {
+            flags.add("-D" + property.getKey() + "=" + property.getValue());
+        }
+        return JVMLauncher.buildCommand(mainClass, classpath, flags, programArgs);
+    }
+
+    /**
+     * @return number of JVMs ready to be claimed
+     */
+    public int available()
+    {
+        return idle.size();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        try
+        {
+            server.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+        for(Idle jvm; (jvm = idle.poll()) != null;)
+        {
+            jvm.process.destroy();
+        }
+        for(CompletableFuture<Process> process : starting.values())
+        {
+            process.thenAccept(Process::destroy);
+        }
+    }
+
+    private void spawn()
+    {
+        if(closed)
+            return;
+        if(failedStarts.get() >= MAX_FAILED_STARTS)
+        {
+            System.err.println("[WarmJvmPool] " + MAX_FAILED_STARTS + " pooled JVMs died while starting, not starting more");
+            return;
+        }
+        String id = Long.toString(nextId.incrementAndGet());
+        List<String> flags = new ArrayList<>(jvmFlags);
+        flags.add("-D" + WarmStart.PORT_PROPERTY + "=" + server.getLocalPort());
+        flags.add("-D" + WarmStart.TOKEN_PROPERTY + "=" + token);
+        flags.add("-D" + WarmStart.ID_PROPERTY + "=" + id);
+
+        List<String> args = new ArrayList<>();
+        args.add(mainClass);
+        List<String> command = JVMLauncher.buildCommand(WarmStart.class.getName(), classpath, flags, args);
+        CompletableFuture<Process> started = new CompletableFuture<>();
+        starting.put(id, started);
+        try
+        {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            if(!pipeOutput)
+                pb.inheritIO();
+            Process process = pb.start();
+            started.complete(process);
+            process.onExit().thenRun(() -> {
+                // died before reporting ready
+                if(starting.remove(id) != null && !closed)
+                {
+                    failedStarts.incrementAndGet();
+                    spawn();
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            starting.remove(id);
+            started.completeExceptionally(e);
+            System.err.println("[WarmJvmPool] failed to start pooled JVM: " + e.getMessage());
+        }
+    }
+
+    private void addIdle(Process process, Socket socket)
+    {
+        failedStarts.set(0);
+        Idle jvm = new Idle(process, socket);
+        idle.add(jvm);
+        process.onExit().thenRun(() -> {
+            // died while waiting, claim() has not taken it, so replace it here
+            if(idle.remove(jvm))
+            {
+                closeQuietly(socket);
+                spawn();
+            }
+        });
+    }
+
+    private void acceptLoop()
+    {
+        while(!closed)
+        {
+            Socket socket = null;
+            try
+            {
+                socket = server.accept();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                String childToken = in.readUTF();
+                String id = in.readUTF();
+                CompletableFuture<Process> started = token.equals(childToken) ? starting.remove(id) : null;
+                if(started == null)
+                {
+                    socket.close();
+                    continue;
+                }
+                Socket accepted = socket;
+                // completes once pb.start() returned in spawn(), the child may connect before that
+                started.whenComplete((process, ex) -> {
+                    if(process != null && !closed)
+                        addIdle(process, accepted);
+                    else
+                        closeQuietly(accepted);
+                });
+            }
+            catch (IOException e)
+            {
+                if(socket != null)
+                    closeQuietly(socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    private static final class Idle
+    {
+        private final Process process;
+        private final Socket socket;
+
+        private Idle(Process process, Socket socket)
+        {
+            this.process = process;
+            this.socket = socket;
+        }
+    }
+}
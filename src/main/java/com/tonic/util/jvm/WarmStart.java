@@ -0,0 +1,120 @@
+package com.tonic.util.jvm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Entry point of a pooled child JVM started by {@link WarmJvmPool}.
+ * <p>
+ * Loads (without initializing) the classes of the shared classpath, reports ready to the
+ * pool over a loopback socket and blocks until it is claimed. The system properties sent with
+ * the claim are set and its program args are passed to the real client main class.
+ */
+public class WarmStart
+{
+    static final String PORT_PROPERTY = "vitalite.pool.port";
+    static final String TOKEN_PROPERTY = "vitalite.pool.token";
+    static final String ID_PROPERTY = "vitalite.pool.id";
+    /**
+     * sent back once the program args are read, so the pool knows the claim landed
+     */
+    static final int ACK = 1;
+    static final String PRELOAD_PROPERTY = "vitalite.pool.preload";
+    static final String DEFAULT_PRELOAD = "net.runelite.,com.tonic.,com.google.inject.,com.google.common.";
+
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length < 1)
+            throw new IllegalArgumentException("Usage: WarmStart <mainClass>");
+
+        int port = Integer.parseInt(System.getProperty(PORT_PROPERTY));
+        String token = System.getProperty(TOKEN_PROPERTY, "");
+        ClassLoader loader = WarmStart.class.getClassLoader();
+        Class<?> mainClass = Class.forName(args[0], false, loader);
+        preload(loader, System.getProperty(PRELOAD_PROPERTY, DEFAULT_PRELOAD).split(","));
+
+        String[] programArgs;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+        {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(token);
+            out.writeUTF(System.getProperty(ID_PROPERTY, ""));
+            out.flush();
+
+            // blocks until the pool hands this JVM to a client
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int properties = in.readInt();
+            for(int i = 0; i < properties; i++)
+            {
+                System.setProperty(in.readUTF(), in.readUTF());
+            }
+            programArgs = new String[in.readInt()];
+            for(int i = 0; i < programArgs.length; i++)
+            {
+                programArgs[i] = in.readUTF();
+            }
+            out.write(ACK);
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            // the pool went away before claiming us
+            System.exit(0);
+            return;
+        }
+
+        Method main = mainClass.getMethod("main", String[].class);
+        main.invoke(null, (Object) programArgs);
+    }
+
+    static void preload(ClassLoader loader, String[] prefixes)
+    {
+        for(String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+        {
+            if(!entry.endsWith(".jar"))
+                continue;
+            try (JarFile jar = new JarFile(entry))
+            {
+                Enumeration<JarEntry> entries = jar.entries();
+                while(entries.hasMoreElements())
+                {
+                    String name = entries.nextElement().getName();
+                    if(!name.endsWith(".class") || name.contains("-") || name.startsWith("META-INF"))
+                        continue;
+                    String className = name.substring(0, name.length() - 6).replace('/', '.');
+                    if(!matches(className, prefixes))
+                        continue;
+                    try
+                    {
+                        Class.forName(className, false, loader);
+                    }
+                    catch (Throwable ignored)
+                    {
+                        // optional dependencies missing from the classpath
+                    }
+                }
+            }
+            catch (IOException ignored)
+            {
+            }
+        }
+    }
+
+    private static boolean matches(String className, String[] prefixes)
+    {
+        for(String prefix : prefixes)
+        {
+            if(!prefix.isEmpty() && className.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+}
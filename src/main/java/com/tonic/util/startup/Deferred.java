@@ -0,0 +1,93 @@
+package com.tonic.util.startup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A startup subsystem that is only loaded on first use. The load is timed as a startup phase
+ * and runs at most once, concurrent callers wait for it.
+ * @param <T> loaded value
+ */
+public final class Deferred<T>
+{
+    private final String name;
+    private final Supplier<T> loader;
+    private volatile boolean loaded;
+    private T value;
+
+    Deferred(String name, Supplier<T> loader)
+    {
+        this.name = name;
+        this.loader = loader;
+    }
+
+    /**
+     * @param name phase name
+     * @param loader loads the subsystem, called on first {@link #get()}
+     * @return Deferred
+     */
+    public static <T> Deferred<T> of(String name, Supplier<T> loader)
+    {
+        return new Deferred<>(name, loader);
+    }
+
+    /**
+     * a subsystem that is disabled, get() returns the given value without loading anything
+     * @param name phase name
+     * @param value value to return
+     * @return Deferred
+     */
+    public static <T> Deferred<T> disabled(String name, T value)
+    {
+        Deferred<T> deferred = new Deferred<>(name, null);
+        deferred.value = value;
+        deferred.loaded = true;
+        return deferred;
+    }
+
+    /**
+     * load on first call
+     * @return the loaded value
+     */
+    public T get()
+    {
+        if(!loaded)
+        {
+            synchronized (this)
+            {
+                if(!loaded)
+                {
+                    value = StartupProfiler.time(name, loader);
+                    loaded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * start loading in the background
+     * @param executor executor to load on
+     * @return future of the loaded value
+     */
+    public CompletableFuture<T> getAsync(Executor executor)
+    {
+        if(loaded)
+            return CompletableFuture.completedFuture(value);
+        return CompletableFuture.supplyAsync(this::get, executor);
+    }
+
+    /**
+     * @return true once loaded
+     */
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,25 @@
+package com.tonic.util.startup;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one startup phase, so phases line up with GC, class loading and JIT activity in the recording.
+ */
+@Name("com.tonic.StartupPhase")
+@Label("Startup Phase")
+@Category("VitaLite")
+@Description("A client startup phase timed by StartupProfiler")
+class StartupPhaseEvent extends Event
+{
+    @Label("Phase")
+    String phase;
+
+    StartupPhaseEvent(String phase)
+    {
+        this.phase = phase;
+    }
+}
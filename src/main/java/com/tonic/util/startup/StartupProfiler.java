@@ -0,0 +1,326 @@
+package com.tonic.util.startup;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Timestamps client startup phases and writes a report once the client is ready.
+ * <p>
+ * Enabled in the child JVM by the launcher with --profileStartup (the vitalite.startup.profile property).
+ * When disabled every call is a no-op. Phases may nest and run on any thread:
+ * <pre>
+ * try(StartupProfiler.Phase ignored = StartupProfiler.begin(StartupProfiler.CORE_PLUGINS))
+ * {
+ *     ...
+ * }
+ * StartupProfiler.finish();
+ * </pre>
+ * {@link #finish()} writes startup-&lt;pid&gt;.json and prints a summary. With --profileStartupJfr the launcher
+ * also starts a JFR recording, dumped next to the report, in which every phase shows as a VitaLite event.
+ */
+public final class StartupProfiler
+{
+    public static final String ENABLED_PROPERTY = "vitalite.startup.profile";
+    /**
+     * epoch millis at which the launcher was asked to start this client
+     */
+    public static final String LAUNCHED_AT_PROPERTY = "vitalite.startup.launchedAt";
+    /**
+     * name of the JFR recording started by the launcher
+     */
+    public static final String RECORDING_NAME = "vitalite-startup";
+
+    // well known phase names, shared by the launcher and the client
+    public static final String JVM_LAUNCH = "jvm launch";
+    public static final String JVM_BOOT = "jvm boot";
+    public static final String GAMEPACK_DUMP = "gamepack dump";
+    public static final String CORE_PLUGINS = "core plugins";
+    public static final String MUSIC = "music";
+    public static final String AUDIO_PROBE = "audio probe";
+    public static final String AUTO_LOGIN = "auto login";
+    public static final String PLUGIN_START = "plugin start";
+    public static final String MOUSE_HOOK = "mouse hook";
+
+    private static final Path DIRECTORY = Paths.get(System.getProperty("user.home"), ".vitalite", "startup");
+    private static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static final Phase NOOP = new Phase(null, 0, 0);
+    private static final List<Phase> PHASES = new ArrayList<>();
+    private static final ThreadLocal<Integer> DEPTH = ThreadLocal.withInitial(() -> 0);
+    private static final AtomicBoolean FINISHED = new AtomicBoolean();
+    private static final ClassLoadingMXBean CLASSES = ManagementFactory.getClassLoadingMXBean();
+    private static final long ORIGIN_NANOS;
+
+    static
+    {
+        // phase times are relative to JVM start
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        ORIGIN_NANOS = System.nanoTime() - uptimeMillis * 1_000_000L;
+        if(ENABLED)
+        {
+            record(JVM_BOOT, ORIGIN_NANOS, System.nanoTime(), 0, CLASSES.getTotalLoadedClassCount(), "main");
+            Runtime.getRuntime().addShutdownHook(new Thread(StartupProfiler::finish, "startup-profiler"));
+        }
+    }
+
+    private StartupProfiler()
+    {
+    }
+
+    /**
+     * @return true if startup is being profiled
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * flags the launcher adds to a child JVM to profile its startup
+     * @param jfr also record a JFR recording of startup
+     * @param launchedAt epoch millis at which the launch was requested
+     * @return JVM flags
+     */
+    public static List<String> jvmFlags(boolean jfr, long launchedAt)
+    {
+        List<String> flags = jvmFlags(jfr);
+        flags.add("-D" + LAUNCHED_AT_PROPERTY + "=" + launchedAt);
+        return flags;
+    }
+
+    /**
+     * flags the launcher adds to a child JVM to profile its startup, without the launch time.
+     * Pooled JVMs start before they are claimed, so they get {@link #LAUNCHED_AT_PROPERTY} with the claim.
+     * @param jfr also record a JFR recording of startup
+     * @return JVM flags
+     */
+    public static List<String> jvmFlags(boolean jfr)
+    {
+        List<String> flags = new ArrayList<>();
+        flags.add("-D" + ENABLED_PROPERTY + "=true");
+        if(jfr)
+            flags.add("-XX:StartFlightRecording=name=" + RECORDING_NAME + ",settings=profile");
+        return flags;
+    }
+
+    /**
+     * start a phase, ended by closing the returned handle
+     * @param name phase name
+     * @return Phase
+     */
+    public static Phase begin(String name)
+    {
+        if(!ENABLED || FINISHED.get())
+            return NOOP;
+        int depth = DEPTH.get();
+        DEPTH.set(depth + 1);
+        return new Phase(name, depth, CLASSES.getTotalLoadedClassCount());
+    }
+
+    /**
+     * time a phase
+     * @param name phase name
+     * @param action phase body
+     */
+    public static void time(String name, Runnable action)
+    {
+        try(Phase ignored = begin(name))
+        {
+            action.run();
+        }
+    }
+
+    /**
+     * time a phase
+     * @param name phase name
+     * @param action phase body
+     * @return the body's result
+     */
+    public static <T> T time(String name, Supplier<T> action)
+    {
+        try(Phase ignored = begin(name))
+        {
+            return action.get();
+        }
+    }
+
+    /**
+     * end profiling, write the report and dump the JFR recording if one is running. Later calls do nothing.
+     * @return the JSON report, or null if profiling is disabled or already finished
+     */
+    public static Path finish()
+    {
+        if(!ENABLED || !FINISHED.compareAndSet(false, true))
+            return null;
+        List<Phase> phases;
+        synchronized (PHASES)
+        {
+            phases = new ArrayList<>(PHASES);
+        }
+        // phases are recorded as they end
+        phases.sort(Comparator.comparingLong(phase -> phase.startNanos));
+        long readyNanos = System.nanoTime() - ORIGIN_NANOS;
+        long pid = ProcessHandle.current().pid();
+        try
+        {
+            Files.createDirectories(DIRECTORY);
+            Path json = DIRECTORY.resolve("startup-" + pid + ".json");
+            try(Writer writer = Files.newBufferedWriter(json, StandardCharsets.UTF_8))
+            {
+                writeJson(writer, pid, readyNanos, phases);
+            }
+            Path jfr = dumpRecording(DIRECTORY.resolve("startup-" + pid + ".jfr"));
+            System.out.println(summary(readyNanos, phases));
+            System.out.println("[StartupProfiler] report: " + json + (jfr != null ? ", recording: " + jfr : ""));
+            return json;
+        }
+        catch (IOException e)
+        {
+            System.err.println("[StartupProfiler] could not write report: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void record(String name, long startNanos, long endNanos, int depth, long classes, String thread)
+    {
+        Phase phase = new Phase(name, depth, 0);
+        phase.startNanos = startNanos;
+        phase.endNanos = endNanos;
+        phase.classes = classes;
+        phase.thread = thread;
+        synchronized (PHASES)
+        {
+            PHASES.add(phase);
+        }
+    }
+
+    private static Path dumpRecording(Path file) throws IOException
+    {
+        if(!FlightRecorder.isAvailable() || !FlightRecorder.isInitialized())
+            return null;
+        for(Recording recording : FlightRecorder.getFlightRecorder().getRecordings())
+        {
+            if(RECORDING_NAME.equals(recording.getName()))
+            {
+                recording.dump(file);
+                recording.close();
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static void writeJson(Writer out, long pid, long readyNanos, List<Phase> phases) throws IOException
+    {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        out.write("{\n");
+        out.write("  \"pid\": " + pid + ",\n");
+        out.write("  \"jvmStartEpochMillis\": " + runtime.getStartTime() + ",\n");
+        long launchedAt = Long.getLong(LAUNCHED_AT_PROPERTY, -1);
+        if(launchedAt > 0)
+            out.write("  \"launchMillis\": " + Math.max(0, runtime.getStartTime() - launchedAt) + ",\n");
+        out.write("  \"readyMillis\": " + millis(readyNanos) + ",\n");
+        out.write("  \"loadedClasses\": " + CLASSES.getTotalLoadedClassCount() + ",\n");
+        out.write("  \"phases\": [");
+        for(int i = 0; i < phases.size(); i++)
+        {
+            Phase phase = phases.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\"name\": \"" + escape(phase.name) + "\""
+                    + ", \"thread\": \"" + escape(phase.thread) + "\""
+                    + ", \"depth\": " + phase.depth
+                    + ", \"startMillis\": " + millis(phase.startNanos - ORIGIN_NANOS)
+                    + ", \"durationMillis\": " + millis(phase.endNanos - phase.startNanos)
+                    + ", \"classesLoaded\": " + phase.classes + "}");
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    private static String summary(long readyNanos, List<Phase> phases)
+    {
+        StringBuilder sb = new StringBuilder("[StartupProfiler] ready after ").append(millis(readyNanos)).append(" ms");
+        long launchedAt = Long.getLong(LAUNCHED_AT_PROPERTY, -1);
+        if(launchedAt > 0)
+            sb.append(" (+").append(Math.max(0, ManagementFactory.getRuntimeMXBean().getStartTime() - launchedAt)).append(" ms ").append(JVM_LAUNCH).append(")");
+        sb.append(String.format(Locale.ROOT, "%n  %-32s %10s %10s %8s  %s", "phase", "start ms", "took ms", "classes", "thread"));
+        for(Phase phase : phases)
+        {
+            String name = "  ".repeat(phase.depth) + phase.name;
+            sb.append(String.format(Locale.ROOT, "%n  %-32s %10.1f %10.1f %8d  %s", name,
+                    millis(phase.startNanos - ORIGIN_NANOS), millis(phase.endNanos - phase.startNanos), phase.classes, phase.thread));
+        }
+        return sb.toString();
+    }
+
+    private static double millis(long nanos)
+    {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * a running or finished startup phase
+     */
+    public static final class Phase implements AutoCloseable
+    {
+        private final String name;
+        private final int depth;
+        private final long startClasses;
+        private final StartupPhaseEvent event;
+        private long startNanos;
+        private long endNanos;
+        private long classes;
+        private String thread;
+
+        private Phase(String name, int depth, long startClasses)
+        {
+            this.name = name;
+            this.depth = depth;
+            this.startClasses = startClasses;
+            this.startNanos = System.nanoTime();
+            this.event = name != null ? new StartupPhaseEvent(name) : null;
+            if(event != null)
+                event.begin();
+        }
+
+        /**
+         * end the phase. Closing twice has no effect.
+         */
+        @Override
+        public void close()
+        {
+            if(name == null || endNanos != 0)
+                return;
+            endNanos = System.nanoTime();
+            classes = CLASSES.getTotalLoadedClassCount() - startClasses;
+            thread = Thread.currentThread().getName();
+            DEPTH.set(Math.max(0, DEPTH.get() - 1));
+            event.commit();
+            if(FINISHED.get())
+                return;
+            synchronized (PHASES)
+            {
+                PHASES.add(this);
+            }
+        }
+    }
+}
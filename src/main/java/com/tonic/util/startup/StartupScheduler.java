@@ -0,0 +1,280 @@
+package com.tonic.util.startup;
+
+import com.tonic.VitaLiteOptions;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Starts independent client subsystems in parallel on a small bounded pool, and defers heavy
+ * non-critical ones until first use.
+ * <p>
+ * What a phase needs is decided from VitaLiteOptions:
+ * <ul>
+ *     <li>{@link StartupProfiler#PLUGIN_START} (with --plugin or --quickstart) and {@link StartupProfiler#AUTO_LOGIN}
+ *     (with --login or --user) are critical. They, and everything they depend on, run ahead of other tasks,
+ *     and {@link #start()} completes as soon as they are done</li>
+ *     <li>{@link StartupProfiler#CORE_PLUGINS} with --noPlugins, {@link StartupProfiler#GAMEPACK_DUMP} without --rsdump
+ *     and {@link StartupProfiler#MOUSE_HOOK} with --disableMouseHook are skipped</li>
+ *     <li>{@link StartupProfiler#MUSIC} and {@link StartupProfiler#AUDIO_PROBE} are not tasks, load them with {@link #defer}</li>
+ * </ul>
+ * <pre>
+ * StartupScheduler scheduler = new StartupScheduler(options)
+ *         .task(StartupProfiler.CORE_PLUGINS, this::loadCorePlugins)
+ *         .task(StartupProfiler.AUTO_LOGIN, this::login)
+ *         .task(StartupProfiler.PLUGIN_START, this::startPlugin, StartupProfiler.CORE_PLUGINS);
+ * scheduler.start().join();
+ * </pre>
+ */
+public class StartupScheduler
+{
+    private static final int MAX_THREADS = 4;
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final VitaLiteOptions options;
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final CompletableFuture<Void> all = new CompletableFuture<>();
+    private boolean started;
+
+    /**
+     * @param options client options, deciding which phases are critical or skipped
+     */
+    public StartupScheduler(VitaLiteOptions options)
+    {
+        this.options = options;
+        int threads = Math.max(2, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        // critical tasks are always taken off the queue first, then tasks in the order they were added
+        this.executor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "startup-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * add a subsystem to start
+     * @param name phase name, see the StartupProfiler constants
+     * @param action starts the subsystem
+     * @param dependsOn names of tasks that must finish first
+     * @return this
+     * @throws IllegalStateException if the scheduler was already started
+     */
+    public synchronized StartupScheduler task(String name, Runnable action, String... dependsOn)
+    {
+        if(started)
+            throw new IllegalStateException("Startup already started");
+        if(tasks.containsKey(name))
+            throw new IllegalArgumentException("Duplicate startup task: " + name);
+        tasks.put(name, new Task(name, action, dependsOn, tasks.size(), isSkipped(name), isCritical(name)));
+        return this;
+    }
+
+    /**
+     * a subsystem loaded on first use instead of at startup
+     * @param name phase name
+     * @param loader loads the subsystem
+     * @param whenDisabled value returned without loading if the options disable the subsystem
+     * @return Deferred
+     */
+    public <T> Deferred<T> defer(String name, Supplier<T> loader, T whenDisabled)
+    {
+        // checked on first use, so a deferred audio probe is not forced during startup
+        if(StartupProfiler.MUSIC.equals(name))
+            return Deferred.of(name, () -> options.isNoMusic() ? whenDisabled : loader.get());
+        return Deferred.of(name, loader);
+    }
+
+    /**
+     * start every task
+     * @return future completing once all critical tasks are done, failing if one of them fails
+     * @throws IllegalArgumentException for unknown dependencies or dependency cycles
+     */
+    public synchronized CompletableFuture<Void> start()
+    {
+        if(started)
+            throw new IllegalStateException("Startup already started");
+        started = true;
+
+        for(Task task : tasks.values())
+        {
+            for(String dependency : task.dependsOn)
+            {
+                if(!tasks.containsKey(dependency))
+                    throw new IllegalArgumentException("Startup task " + task.name + " depends on unknown task " + dependency);
+            }
+        }
+        Set<String> done = new HashSet<>();
+        for(Task task : tasks.values())
+        {
+            checkCycles(task, new HashSet<>(), done);
+            if(task.critical)
+                promote(task);
+        }
+
+        List<CompletableFuture<Void>> critical = new ArrayList<>();
+        List<CompletableFuture<Void>> every = new ArrayList<>();
+        for(Task task : tasks.values())
+        {
+            wire(task);
+            every.add(task.future);
+            if(task.critical)
+                critical.add(task.future);
+        }
+
+        CompletableFuture.allOf(every.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+            executor.shutdown();
+            if(e != null)
+                all.completeExceptionally(e);
+            else
+                all.complete(null);
+        });
+        return CompletableFuture.allOf(critical.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * @return future completing once every task is done
+     */
+    public CompletableFuture<Void> all()
+    {
+        return all;
+    }
+
+    private void wire(Task task)
+    {
+        CompletableFuture<?>[] dependencies = new CompletableFuture[task.dependsOn.length];
+        for(int i = 0; i < dependencies.length; i++)
+        {
+            dependencies[i] = tasks.get(task.dependsOn[i]).future;
+        }
+        CompletableFuture.allOf(dependencies).whenComplete((v, e) -> {
+            if(e != null)
+                task.future.completeExceptionally(e);
+            else if(task.skipped)
+                task.future.complete(null);
+            else
+                executor.execute(new Job(task));
+        });
+    }
+
+    private void checkCycles(Task task, Set<String> path, Set<String> done)
+    {
+        if(done.contains(task.name))
+            return;
+        if(!path.add(task.name))
+            throw new IllegalArgumentException("Startup dependency cycle through " + task.name);
+        for(String dependency : task.dependsOn)
+        {
+            checkCycles(tasks.get(dependency), path, done);
+        }
+        path.remove(task.name);
+        done.add(task.name);
+    }
+
+    /**
+     * everything a critical task depends on is critical as well
+     */
+    private void promote(Task task)
+    {
+        task.critical = true;
+        for(String dependency : task.dependsOn)
+        {
+            Task parent = tasks.get(dependency);
+            if(!parent.critical)
+                promote(parent);
+        }
+    }
+
+    private boolean isCritical(String name)
+    {
+        switch (name)
+        {
+            case StartupProfiler.PLUGIN_START:
+                return options.getPlugin() != null || options.isQuickstart();
+            case StartupProfiler.AUTO_LOGIN:
+                return options.getLogin() != null || options.getUser() != null;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isSkipped(String name)
+    {
+        switch (name)
+        {
+            case StartupProfiler.CORE_PLUGINS:
+                return options.isNoPlugins();
+            case StartupProfiler.GAMEPACK_DUMP:
+                return options.getRsdump() == null;
+            case StartupProfiler.MOUSE_HOOK:
+                return options.isDisableMouseHook();
+            default:
+                return false;
+        }
+    }
+
+    private static final class Task
+    {
+        private final String name;
+        private final Runnable action;
+        private final String[] dependsOn;
+        private final int order;
+        private final boolean skipped;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private boolean critical;
+
+        private Task(String name, Runnable action, String[] dependsOn, int order, boolean skipped, boolean critical)
+        {
+            this.name = name;
+            this.action = action;
+            this.dependsOn = dependsOn;
+            this.order = order;
+            this.skipped = skipped;
+            this.critical = critical;
+        }
+    }
+
+    private static final class Job implements Runnable, Comparable<Job>
+    {
+        private final Task task;
+
+        private Job(Task task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                StartupProfiler.time(task.name, task.action);
+                task.future.complete(null);
+            }
+            catch (Throwable t)
+            {
+                System.err.println("[StartupScheduler] " + task.name + " failed: " + t);
+                task.future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(Job other)
+        {
+            if(task.critical != other.task.critical)
+                return task.critical ? -1 : 1;
+            return Integer.compare(task.order, other.task.order);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.tonic.util.supervisor;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches child clients and restarts them with exponential backoff when they exit,
+ * run out of memory, leak (heap after GC stays near its -Xmx) or hang (no CPU progress).
+ * The supervisor thread starts with the first client and keeps the launcher JVM alive until
+ * {@link #shutdown()} or until every client is stopped; a later start brings it back.
+ * <p>
+ * Children are started with piped output captured into per-client {@link LogRing}s instead
+ * of sharing the launcher's console, and with {@link #JVM_FLAGS} so GC and OOM show up on
+ * their stdout without needing the attach mechanism.
+ */
+public class ClientSupervisor
+{
+    /**
+     * flags every supervised child should be started with
+     */
+    public static final List<String> JVM_FLAGS = Collections.unmodifiableList(Arrays.asList(
+            "-Xlog:gc:stdout",
+            "-XX:+ExitOnOutOfMemoryError"
+    ));
+
+    private static final long SAMPLE_MILLIS = 5_000;
+    private static final long MIN_BACKOFF_MILLIS = 5_000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000;
+    // a client that stayed up this long gets its backoff reset
+    private static final long STABLE_MILLIS = 10 * 60_000;
+    private static final long HANG_MILLIS = 2 * 60_000;
+    private static final double LEAK_HEAP_RATIO = 0.9;
+    private static final int LEAK_SAMPLES = 12;
+    private static final int LOG_LINES = 2_000;
+
+    private static ClientSupervisor instance;
+
+    @Getter
+    private final List<SupervisedClient> clients = new CopyOnWriteArrayList<>();
+    // null while no client is supervised, so a launcher whose first start failed can still exit
+    private ScheduledExecutorService scheduler;
+
+    private ClientSupervisor()
+    {
+    }
+
+    public static synchronized ClientSupervisor get()
+    {
+        if(instance == null)
+            instance = new ClientSupervisor();
+        return instance;
+    }
+
+    /**
+     * start a child under supervision
+     * @param name display name
+     * @param command full command line, built with {@link #JVM_FLAGS}
+     * @return SupervisedClient
+     * @throws IOException if the first start fails
+     */
+    public SupervisedClient start(String name, List<String> command) throws IOException
+    {
+        return start(name, command, null);
+    }
+
+    /**
+     * start a child under supervision, starting and restarting it through a starter
+     * @param name display name
+     * @param command the command the starter runs, built with {@link #JVM_FLAGS}
+     * @param starter starts the process with piped output, null to run the command
+     * @return SupervisedClient
+     * @throws IOException if the first start fails
+     */
+    public SupervisedClient start(String name, List<String> command, SupervisedClient.Starter starter) throws IOException
+    {
+        SupervisedClient client = new SupervisedClient(name, new ArrayList<>(command), starter, LOG_LINES);
+        client.start();
+        synchronized (this)
+        {
+            clients.add(client);
+            if(scheduler == null)
+            {
+                // not a daemon: supervision has to outlive the launcher's main
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "client-supervisor"));
+                scheduler.scheduleWithFixedDelay(this::tick, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return client;
+    }
+
+    /**
+     * stop every client and the supervisor thread
+     */
+    public synchronized void shutdown()
+    {
+        for(SupervisedClient client : clients)
+        {
+            client.stop();
+        }
+        if(scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return one status line per client
+     */
+    public String report()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(SupervisedClient client : clients)
+        {
+            sb.append(client).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private void tick()
+    {
+        long now = System.currentTimeMillis();
+        for(SupervisedClient client : clients)
+        {
+            try
+            {
+                check(client, now);
+            }
+            catch (RuntimeException e)
+            {
+                System.err.println("[ClientSupervisor] " + client.getName() + ": " + e);
+            }
+        }
+        synchronized (this)
+        {
+            // checked under the lock, a client started meanwhile keeps the thread
+            for(SupervisedClient client : clients)
+            {
+                if(!client.isStopped())
+                    return;
+            }
+            if(scheduler != null)
+            {
+                System.err.println("[ClientSupervisor] every client is stopped, supervisor exiting");
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+    }
+
+    private void check(SupervisedClient client, long now)
+    {
+        if(client.isStopped())
+            return;
+
+        Process process = client.getProcess();
+        if(process == null || !process.isAlive())
+        {
+            restart(client, now, process == null ? "not running" : "exited with " + process.exitValue());
+            return;
+        }
+
+        long pid = process.pid();
+        long cpu = ProcSampler.cpuMillis(pid);
+        double percent = -1;
+        if(cpu >= 0 && client.lastCpuMillis >= 0)
+        {
+            long elapsed = Math.max(1, now - client.lastCpuSampleAt);
+            percent = (cpu - client.lastCpuMillis) * 100.0 / elapsed;
+            if(cpu == client.lastCpuMillis)
+            {
+                if(client.cpuFrozenSince == 0)
+                    client.cpuFrozenSince = now;
+            }
+            else
+            {
+                client.cpuFrozenSince = 0;
+            }
+        }
+        client.lastCpuMillis = cpu;
+        client.lastCpuSampleAt = now;
+        client.sample(ProcSampler.rssBytes(pid), percent);
+
+        if(isLeaking(client, client.getGcStats()))
+            client.highHeapSamples++;
+        else
+            client.highHeapSamples = 0;
+
+        if(client.isOutOfMemory())
+            kill(client, now, "out of memory");
+        else if(client.highHeapSamples >= LEAK_SAMPLES)
+            kill(client, now, "heap stayed above " + (int) (LEAK_HEAP_RATIO * 100) + "% of its maximum after GC");
+        else if(client.cpuFrozenSince > 0 && now - client.cpuFrozenSince > HANG_MILLIS)
+            kill(client, now, "no CPU progress for " + HANG_MILLIS / 1000 + "s");
+    }
+
+    /**
+     * the committed heap (the figure in parentheses of the GC log) follows occupancy, so a healthy
+     * client sits near it; only the -Xmx limit says how close the client is to running out
+     */
+    private static boolean isLeaking(SupervisedClient client, GcStats gc)
+    {
+        long after = gc.getHeapAfterMb();
+        if(after < 0)
+            return false;
+        long max = client.getMaxHeapMb();
+        if(max > 0)
+            return after >= max * LEAK_HEAP_RATIO;
+        // no -Xmx on the command line: only a heap that keeps growing after GC counts
+        long previous = client.lastHeapAfterMb;
+        client.lastHeapAfterMb = after;
+        return previous >= 0 && after > previous && after >= gc.getHeapCommittedMb() * LEAK_HEAP_RATIO;
+    }
+
+    private void kill(SupervisedClient client, long now, String reason)
+    {
+        System.err.println("[ClientSupervisor] " + client.getName() + ": " + reason + ", restarting");
+        client.getProcess().destroyForcibly();
+        restart(client, now, reason);
+    }
+
+    private void restart(SupervisedClient client, long now, String reason)
+    {
+        if(client.nextRestartAt == 0)
+        {
+            boolean stable = now - client.getStartedAt() > STABLE_MILLIS;
+            int attempt = stable ? 0 : Math.min(client.getRestarts(), 16);
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << attempt);
+            client.nextRestartAt = now + backoff;
+            System.err.println("[ClientSupervisor] " + client.getName() + " " + reason + ", restart in " + backoff / 1000 + "s");
+            return;
+        }
+        if(now < client.nextRestartAt)
+            return;
+
+        client.nextRestartAt = 0;
+        try
+        {
+            client.start();
+            client.restarted();
+        }
+        catch (IOException e)
+        {
+            System.err.println("[ClientSupervisor] " + client.getName() + " restart failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tonic.util.supervisor;
+
+import lombok.Getter;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Heap and GC figures parsed from a child's unified GC log (-Xlog:gc) on its stdout.
+ * This needs no attach mechanism, so children keep -XX:+DisableAttachMechanism.
+ */
+@Getter
+public class GcStats
+{
+    // e.g. "GC(12) Pause Young (Normal) (G1 Evacuation Pause) 24M->8M(256M) 3.456ms"
+    private static final Pattern PAUSE = Pattern.compile("GC\\(\\d+\\) (.+?) (\\d+)M->(\\d+)M\\((\\d+)M\\) ([\\d.]+)ms");
+
+    private long collections;
+    private double totalPauseMillis;
+    private double maxPauseMillis;
+    private long heapAfterMb = -1;
+    private long heapCommittedMb = -1;
+    private long fullCollections;
+
+    /**
+     * @param line a stdout line
+     * @return true if the line was a GC log line
+     */
+    public synchronized boolean accept(String line)
+    {
+        if(!line.contains("[gc"))
+            return false;
+        Matcher m = PAUSE.matcher(line);
+        if(!m.find())
+            return true;
+        collections++;
+        if(m.group(1).startsWith("Pause Full"))
+            fullCollections++;
+        heapAfterMb = Long.parseLong(m.group(3));
+        heapCommittedMb = Long.parseLong(m.group(4));
+        double pause = Double.parseDouble(m.group(5));
+        totalPauseMillis += pause;
+        maxPauseMillis = Math.max(maxPauseMillis, pause);
+        return true;
+    }
+
+    public synchronized void reset()
+    {
+        collections = 0;
+        totalPauseMillis = 0;
+        maxPauseMillis = 0;
+        heapAfterMb = -1;
+        heapCommittedMb = -1;
+        fullCollections = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("gc=%d (full %d) pause total=%.0fms max=%.1fms heap=%dM/%dM",
+                collections, fullCollections, totalPauseMillis, maxPauseMillis, heapAfterMb, heapCommittedMb);
+    }
+}
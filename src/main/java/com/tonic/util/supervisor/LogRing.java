@@ -0,0 +1,52 @@
+package com.tonic.util.supervisor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of the most recent log lines of one child stream.
+ */
+public class LogRing
+{
+    private final String[] lines;
+    private long written = 0;
+    private volatile long lastWriteMillis = System.currentTimeMillis();
+
+    public LogRing(int capacity)
+    {
+        this.lines = new String[Math.max(1, capacity)];
+    }
+
+    public synchronized void add(String line)
+    {
+        lines[(int) (written++ % lines.length)] = line;
+        lastWriteMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return buffered lines, oldest first
+     */
+    public synchronized List<String> lines()
+    {
+        int count = (int) Math.min(written, lines.length);
+        List<String> result = new ArrayList<>(count);
+        for(long i = written - count; i < written; i++)
+        {
+            result.add(lines[(int) (i % lines.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * @return total lines ever written, including overwritten ones
+     */
+    public synchronized long written()
+    {
+        return written;
+    }
+
+    public long getLastWriteMillis()
+    {
+        return lastWriteMillis;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tonic.util.supervisor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads per-process resident memory and CPU time from /proc. Returns -1 where /proc is unavailable.
+ */
+public final class ProcSampler
+{
+    // USER_HZ, 100 on every mainstream Linux build
+    private static final long CLOCK_TICKS = 100;
+    private static final boolean AVAILABLE = Files.isDirectory(Paths.get("/proc/self"));
+
+    private ProcSampler()
+    {
+    }
+
+    /**
+     * @param pid process id
+     * @return resident set size in bytes, or -1
+     */
+    public static long rssBytes(long pid)
+    {
+        if(!AVAILABLE)
+            return -1;
+        try
+        {
+            for(String line : Files.readAllLines(proc(pid, "status"), StandardCharsets.US_ASCII))
+            {
+                if(line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+            }
+        }
+        catch (IOException | NumberFormatException ignored)
+        {
+        }
+        return -1;
+    }
+
+    /**
+     * @param pid process id
+     * @return user + system CPU time in milliseconds, or -1
+     */
+    public static long cpuMillis(long pid)
+    {
+        if(!AVAILABLE)
+            return -1;
+        try
+        {
+            String stat = new String(Files.readAllBytes(proc(pid, "stat")), StandardCharsets.US_ASCII);
+            // the command name may contain spaces, fields are counted after its closing paren
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long utime = Long.parseLong(fields[11]);
+            long stime = Long.parseLong(fields[12]);
+            return (utime + stime) * 1000 / CLOCK_TICKS;
+        }
+        catch (IOException | RuntimeException ignored)
+        {
+        }
+        return -1;
+    }
+
+    private static Path proc(long pid, String file)
+    {
+        return Paths.get("/proc", Long.toString(pid), file);
+    }
+}
@@ -0,0 +1,166 @@
+package com.tonic.util.supervisor;
+
+import com.tonic.util.jvm.MemorySize;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * One child client under supervision: its current process, per-stream log rings,
+ * GC statistics and the latest /proc samples.
+ */
+@Getter
+public class SupervisedClient
+{
+    /**
+     * starts the child process, e.g. by claiming a pre-warmed JVM. Its output must be piped.
+     */
+    @FunctionalInterface
+    public interface Starter
+    {
+        Process start() throws IOException;
+    }
+
+    private final String name;
+    private final List<String> command;
+    private final Starter starter;
+    private final LogRing stdout;
+    private final LogRing stderr;
+    private final GcStats gcStats = new GcStats();
+    /**
+     * the child's -Xmx in megabytes, -1 if its command does not set one
+     */
+    private final long maxHeapMb;
+    private volatile Process process;
+    private volatile long startedAt;
+    private volatile int restarts = 0;
+    private volatile long rssBytes = -1;
+    private volatile double cpuPercent = -1;
+    private volatile boolean outOfMemory = false;
+    private volatile boolean stopped = false;
+    // state used by the supervisor between samples
+    volatile long lastCpuMillis = -1;
+    volatile long lastCpuSampleAt = 0;
+    volatile long cpuFrozenSince = 0;
+    volatile long nextRestartAt = 0;
+    volatile int highHeapSamples = 0;
+    volatile long lastHeapAfterMb = -1;
+
+    SupervisedClient(String name, List<String> command, Starter starter, int logLines)
+    {
+        this.name = name;
+        this.command = command;
+        this.starter = starter != null ? starter : () -> new ProcessBuilder(command).start();
+        this.stdout = new LogRing(logLines);
+        this.stderr = new LogRing(logLines);
+        this.maxHeapMb = maxHeapMb(command);
+    }
+
+    /**
+     * start (or restart) the child with piped output
+     * @throws IOException if the process cannot be started
+     */
+    synchronized void start() throws IOException
+    {
+        Process started = starter.start();
+        process = started;
+        startedAt = System.currentTimeMillis();
+        outOfMemory = false;
+        lastCpuMillis = -1;
+        cpuFrozenSince = 0;
+        highHeapSamples = 0;
+        lastHeapAfterMb = -1;
+        gcStats.reset();
+        drain(started.getInputStream(), stdout, "out");
+        drain(started.getErrorStream(), stderr, "err");
+    }
+
+    void sample(long rss, double cpu)
+    {
+        this.rssBytes = rss;
+        this.cpuPercent = cpu;
+    }
+
+    void restarted()
+    {
+        restarts++;
+    }
+
+    /**
+     * stop the child and stop restarting it
+     */
+    public void stop()
+    {
+        stopped = true;
+        Process current = process;
+        if(current != null)
+            current.destroy();
+    }
+
+    public boolean isAlive()
+    {
+        Process current = process;
+        return current != null && current.isAlive();
+    }
+
+    /**
+     * one reader thread per stream keeps the pipe drained, so the child never blocks on a full pipe.
+     * The JDK only exposes process pipes as blocking InputStreams (no selectable channel), so a
+     * single non-blocking loop would need native code or redirecting the output to files.
+     */
+    private void drain(InputStream stream, LogRing ring, String channel)
+    {
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+            {
+                String line;
+                while((line = in.readLine()) != null)
+                {
+                    ring.add(line);
+                    if(gcStats.accept(line))
+                        continue;
+                    if(line.contains("java.lang.OutOfMemoryError"))
+                        outOfMemory = true;
+                }
+            }
+            catch (IOException ignored)
+            {
+                // process exited
+            }
+        }, "supervisor-" + name + "-" + channel);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private static long maxHeapMb(List<String> command)
+    {
+        long max = -1;
+        for(String arg : command)
+        {
+            if(!arg.startsWith("-Xmx"))
+                continue;
+            try
+            {
+                // the JVM takes the last one
+                max = MemorySize.parse(arg.substring(4)).toMegabytes();
+            }
+            catch (IllegalArgumentException ignored)
+            {
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s pid=%s alive=%s restarts=%d rss=%dM cpu=%.1f%% %s",
+                name, process == null ? "-" : process.pid(), isAlive(), restarts,
+                rssBytes < 0 ? -1 : rssBytes >> 20, cpuPercent, gcStats);
+    }
+}